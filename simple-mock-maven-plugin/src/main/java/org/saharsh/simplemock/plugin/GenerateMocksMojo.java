@@ -0,0 +1,153 @@
+package org.saharsh.simplemock.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.saharsh.simplemock.GenerateMocks;
+import org.saharsh.simplemock.MockClassGenerator;
+
+/**
+ * Generates mock classes ahead of time for the types tests mock, and writes
+ * them to the test output directory along with an index. At runtime,
+ * {@link org.saharsh.simplemock.SimpleMock#mockType(Class, org.saharsh.simplemock.MockOption...)}
+ * loads these classes instead of generating them.
+ * <p>
+ * Types are taken from the 'types' configuration and, unless disabled, from
+ * {@link GenerateMocks} annotations on compiled test classes.
+ * <p>
+ * NOTE: On Java 9 and later, 'Code Generation Library' needs Maven to run with
+ * '--add-opens java.base/java.lang=ALL-UNNAMED', for instance via
+ * '.mvn/jvm.config', just like the tests using class mocks do.
+ *
+ * @author Saharsh Singh
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_TEST_CLASSES,
+        requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true)
+public class GenerateMocksMojo extends AbstractMojo {
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    /** Test class path the mocked types are loaded from */
+    @Parameter(defaultValue = "${project.testClasspathElements}", readonly = true, required = true)
+    private List<String> classpathElements;
+
+    /** Directory generated classes and the index are written to */
+    @Parameter(defaultValue = "${project.build.testOutputDirectory}", required = true)
+    private File outputDirectory;
+
+    /** Fully qualified names of types to generate mock classes for */
+    @Parameter
+    private List<String> types;
+
+    /** Whether to scan compiled test classes for {@link GenerateMocks} */
+    @Parameter(property = "simplemock.scanAnnotations", defaultValue = "true")
+    private boolean scanAnnotations;
+
+    /** Skip generating mock classes */
+    @Parameter(property = "simplemock.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping mock class generation");
+            return;
+        }
+
+        URLClassLoader loader = testClassLoader();
+        try {
+            Set<Class<?>> toGenerate = new LinkedHashSet<Class<?>>();
+            if (types != null) {
+                for (String type : types) {
+                    toGenerate.add(load(loader, type));
+                }
+            }
+            if (scanAnnotations && outputDirectory.isDirectory()) {
+                scan(loader, outputDirectory, "", toGenerate);
+            }
+
+            MockClassGenerator generator = new MockClassGenerator(outputDirectory);
+            int generated = 0;
+            for (Class<?> type : toGenerate) {
+                if (!MockClassGenerator.canGenerate(type)) {
+                    getLog().debug("Not generating " + type.getName() + ", it can't be generated ahead of time");
+                    continue;
+                }
+                getLog().debug("Generated " + generator.generate(type));
+                generated++;
+            }
+            generator.writeIndex();
+            getLog().info("Generated " + generated + " mock class(es) in " + outputDirectory);
+        } catch (RuntimeException e) {
+            throw new MojoExecutionException("Failed to generate mock classes", e);
+        } finally {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                getLog().debug(e);
+            }
+        }
+    }
+
+    private URLClassLoader testClassLoader() throws MojoExecutionException {
+        List<URL> urls = new ArrayList<URL>();
+        try {
+            for (String element : classpathElements) {
+                urls.add(new File(element).toURI().toURL());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Invalid test class path", e);
+        }
+
+        // this plugin's own copy of simple-mock is shared with the tests, so
+        // annotations can be compared directly
+        return new URLClassLoader(urls.toArray(new URL[0]), getClass().getClassLoader());
+    }
+
+    // test classes that can't be loaded are skipped, they may never be run
+    private void scan(ClassLoader loader, File directory, String packagePrefix, Set<Class<?>> toGenerate) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                scan(loader, file, packagePrefix + name + ".", toGenerate);
+            } else if (name.endsWith(CLASS_FILE_SUFFIX) && !name.contains("$$")) {
+                String className = packagePrefix + name.substring(0, name.length() - CLASS_FILE_SUFFIX.length());
+                try {
+                    GenerateMocks annotation = Class.forName(className, false, loader)
+                            .getAnnotation(GenerateMocks.class);
+                    if (annotation != null) {
+                        for (Class<?> mocked : annotation.value()) {
+                            toGenerate.add(mocked);
+                        }
+                    }
+                } catch (ClassNotFoundException | LinkageError | TypeNotPresentException e) {
+                    getLog().warn("Not scanning " + className + ", it can't be loaded: " + e);
+                }
+            }
+        }
+    }
+
+    private static Class<?> load(ClassLoader loader, String name) throws MojoExecutionException {
+        try {
+            return Class.forName(name, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new MojoExecutionException("Failed to load " + name, e);
+        }
+    }
+}
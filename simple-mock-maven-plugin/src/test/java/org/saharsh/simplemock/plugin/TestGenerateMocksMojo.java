@@ -0,0 +1,129 @@
+package org.saharsh.simplemock.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.saharsh.simplemock.GenerateMocks;
+import org.saharsh.simplemock.MockClassGenerator;
+import org.saharsh.simplemock.SimpleMock;
+
+public class TestGenerateMocksMojo {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File outputDirectory;
+    private GenerateMocksMojo mojo;
+
+    @Before
+    public void setup() throws Exception {
+        outputDirectory = temporaryFolder.newFolder("test-classes");
+
+        // the parameters Maven would inject
+        mojo = new GenerateMocksMojo();
+        SimpleMock.mockField(mojo, "classpathElements", Arrays.asList(outputDirectory.getPath()));
+        SimpleMock.mockField(mojo, "outputDirectory", outputDirectory);
+        SimpleMock.mockField(mojo, "scanAnnotations", true);
+    }
+
+    @Test
+    public void test_execute_for_generating_annotated_and_configured_types() throws Exception {
+        copyClassFile(AnnotatedTest.class);
+        SimpleMock.mockField(mojo, "types", Collections.singletonList(ConfiguredService.class.getName()));
+
+        mojo.execute();
+
+        Properties index = index();
+        Assert.assertEquals(2, index.size());
+        assertGenerated(index, AnnotatedService.class);
+        assertGenerated(index, ConfiguredService.class);
+    }
+
+    @Test
+    public void test_execute_when_test_class_can_not_be_loaded() throws Exception {
+        copyClassFile(AnnotatedTest.class);
+        write(new File(outputDirectory, "Broken.class"), new byte[] { 1, 2, 3 });
+
+        mojo.execute();
+
+        assertGenerated(index(), AnnotatedService.class);
+    }
+
+    @Test
+    public void test_execute_when_skipped() throws Exception {
+        copyClassFile(AnnotatedTest.class);
+        SimpleMock.mockField(mojo, "skip", true);
+
+        mojo.execute();
+
+        Assert.assertFalse(new File(outputDirectory, MockClassGenerator.INDEX_RESOURCE).exists());
+    }
+
+    private void assertGenerated(Properties index, Class<?> type) {
+        String entry = index.getProperty(type.getName());
+        Assert.assertNotNull(entry);
+        String className = entry.substring(0, entry.indexOf(';'));
+        Assert.assertTrue(new File(outputDirectory, className.replace('.', '/') + ".class").isFile());
+    }
+
+    private Properties index() throws Exception {
+        Properties index = new Properties();
+        InputStream in = new FileInputStream(new File(outputDirectory, MockClassGenerator.INDEX_RESOURCE));
+        try {
+            index.load(in);
+        } finally {
+            in.close();
+        }
+        return index;
+    }
+
+    // as if the class was compiled to the test output directory
+    private void copyClassFile(Class<?> type) throws Exception {
+        String path = type.getName().replace('.', '/') + ".class";
+        File target = new File(outputDirectory, path);
+        target.getParentFile().mkdirs();
+        InputStream in = type.getClassLoader().getResourceAsStream(path);
+        try {
+            Files.copy(in, target.toPath());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(File file, byte[] bytes) throws Exception {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    @GenerateMocks(AnnotatedService.class)
+    public static class AnnotatedTest {
+    }
+
+    public static class AnnotatedService {
+        public String lookup(String key) {
+            return key;
+        }
+    }
+
+    public static class ConfiguredService {
+        public String lookup(String key) {
+            return key;
+        }
+    }
+}
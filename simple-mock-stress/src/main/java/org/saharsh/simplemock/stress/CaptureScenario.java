@@ -0,0 +1,80 @@
+package org.saharsh.simplemock.stress;
+
+import java.util.List;
+import java.util.Random;
+
+import org.saharsh.simplemock.Mock;
+import org.saharsh.simplemock.SimpleMock;
+
+/**
+ * Every worker invokes the same mocked method with its own index and a
+ * sequence number. Afterwards, every invocation must have been captured, and
+ * each worker's invocations must appear in the order it made them.
+ * <p>
+ * When interning, sequence numbers wrap around after a few values, so workers
+ * keep repeating the same argument tuples.
+ *
+ * @author Saharsh Singh
+ */
+final class CaptureScenario implements Scenario {
+
+    private static final int INTERNED_PERIOD = 8;
+
+    private final boolean interned;
+    private int workers;
+    private int operations;
+    private Mock<Sink> mock;
+
+    CaptureScenario(boolean interned) {
+        this.interned = interned;
+    }
+
+    @Override
+    public String name() {
+        return interned ? "capture-interned" : "capture";
+    }
+
+    @Override
+    public void setUp(int workers, int operations) {
+        this.workers = workers;
+        this.operations = operations;
+        mock = SimpleMock.mockType(Sink.class);
+        if (interned) {
+            mock.internCapturedRequests("record", int.class, int.class);
+        }
+    }
+
+    @Override
+    public void operate(int worker, int operation, Random random) {
+        mock.getMocked().record(worker, interned ? operation % INTERNED_PERIOD : operation);
+    }
+
+    @Override
+    public List<String> verify() {
+        Violations violations = new Violations();
+        List<Object[]> captured = mock.getAllCapturedRequests("record", int.class, int.class);
+        if (captured.size() != workers * operations) {
+            violations.add("Captured " + captured.size() + " invocations, expected " + workers * operations);
+        }
+
+        int[] next = new int[workers];
+        for (int i = 0; i < captured.size(); i++) {
+            Object[] args = captured.get(i);
+            if (args == null || args.length != 2) {
+                violations.add("Malformed capture at " + i);
+                continue;
+            }
+            int worker = (Integer) args[0];
+            int expected = interned ? next[worker] % INTERNED_PERIOD : next[worker];
+            if ((Integer) args[1] != expected) {
+                violations.add("Worker " + worker + " captured " + args[1] + " at " + i + ", expected " + expected);
+            }
+            next[worker]++;
+        }
+        return violations.toList();
+    }
+
+    public static interface Sink {
+        void record(int worker, int sequence);
+    }
+}
@@ -0,0 +1,65 @@
+package org.saharsh.simplemock.stress;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outcome of running one {@link Scenario} in one configuration
+ *
+ * @author Saharsh Singh
+ */
+final class Result {
+
+    private final String scenario;
+    private final ThreadMode mode;
+    private final int workers;
+    private final long operations;
+    private final long elapsedNanos;
+    private final long[] latencies;
+    private final List<String> violations;
+
+    /**
+     * @param latencies
+     *            nanoseconds taken by each operation. Sorted in place
+     */
+    Result(String scenario, ThreadMode mode, int workers, long elapsedNanos, long[] latencies,
+            List<String> violations) {
+        this.scenario = scenario;
+        this.mode = mode;
+        this.workers = workers;
+        this.operations = latencies.length;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.violations = violations;
+        Arrays.sort(latencies);
+    }
+
+    boolean passed() {
+        return violations.isEmpty();
+    }
+
+    List<String> violations() {
+        return violations;
+    }
+
+    double throughput() {
+        return operations * 1e9 / elapsedNanos;
+    }
+
+    /** @return latency at the given percentile, in nanoseconds */
+    long percentile(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        // nearest rank, ignoring rounding error in percentiles like 99.9
+        int index = (int) Math.ceil(percentile * latencies.length / 100 - 1e-9) - 1;
+        return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-17s %-8s %4d workers %,14.0f ops/s   p50 %,9d ns   p99 %,9d ns   "
+                + "p99.9 %,11d ns   max %,13d ns   %s", scenario, mode.name().toLowerCase(), workers, throughput(),
+                percentile(50), percentile(99), percentile(99.9), percentile(100), passed() ? "OK" : "FAILED");
+    }
+}
@@ -0,0 +1,41 @@
+package org.saharsh.simplemock.stress;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Something the {@link StressHarness} does to a mock from many threads at
+ * once, along with the invariants that must hold afterwards
+ *
+ * @author Saharsh Singh
+ */
+interface Scenario {
+
+    /** @return short name, used in reports */
+    String name();
+
+    /**
+     * Create fresh mocks for a run
+     *
+     * @param workers
+     *            number of threads that will operate concurrently
+     * @param operations
+     *            number of operations each of them will perform
+     */
+    void setUp(int workers, int operations);
+
+    /**
+     * Perform one operation. Called concurrently from all workers.
+     *
+     * @param worker
+     *            index of the calling worker, from 0
+     * @param operation
+     *            index of the operation within the worker, from 0
+     * @param random
+     *            the worker's seeded schedule
+     */
+    void operate(int worker, int operation, Random random);
+
+    /** @return descriptions of the invariants violated during the run */
+    List<String> verify();
+}
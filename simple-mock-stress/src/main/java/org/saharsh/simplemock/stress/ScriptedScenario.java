@@ -0,0 +1,59 @@
+package org.saharsh.simplemock.stress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.saharsh.simplemock.Mock;
+import org.saharsh.simplemock.SimpleMock;
+
+/**
+ * Workers pull from a sequence of scripted return values exactly as long as
+ * the total number of invocations. Every value must be handed out exactly
+ * once.
+ *
+ * @author Saharsh Singh
+ */
+final class ScriptedScenario implements Scenario {
+
+    private Mock<Source> mock;
+    private AtomicIntegerArray handedOut;
+
+    @Override
+    public String name() {
+        return "scripted";
+    }
+
+    @Override
+    public void setUp(int workers, int operations) {
+        int total = workers * operations;
+        List<Integer> values = new ArrayList<Integer>(total);
+        for (int i = 0; i < total; i++) {
+            values.add(i);
+        }
+        mock = SimpleMock.mockType(Source.class);
+        mock.setReturnValues(values, "next");
+        handedOut = new AtomicIntegerArray(total);
+    }
+
+    @Override
+    public void operate(int worker, int operation, Random random) {
+        handedOut.incrementAndGet(mock.getMocked().next());
+    }
+
+    @Override
+    public List<String> verify() {
+        Violations violations = new Violations();
+        for (int i = 0; i < handedOut.length(); i++) {
+            if (handedOut.get(i) != 1) {
+                violations.add("Value " + i + " handed out " + handedOut.get(i) + " times");
+            }
+        }
+        return violations.toList();
+    }
+
+    public static interface Source {
+        Integer next();
+    }
+}
@@ -0,0 +1,204 @@
+package org.saharsh.simplemock.stress;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hammers mocks from many threads at once and checks that captures, scripted
+ * values and stub swaps stay consistent, reporting throughput and tail
+ * latency for every scenario on both platform and virtual threads.
+ * <p>
+ * Workers line up on a barrier every round, so they all start hammering at
+ * the same moment, and each follows a schedule of short pauses drawn from a
+ * random generator seeded from the run's seed. Runs with the same seed and
+ * settings therefore apply the same pressure, and the seed of a failing run
+ * is printed so it can be repeated.
+ * <p>
+ * Usage: {@code StressHarness [-seed n] [-workers n] [-operations n] [-round n]}
+ *
+ * @author Saharsh Singh
+ */
+public final class StressHarness {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int MAX_SPINS = 64;
+    private static final long BARRIER_TIMEOUT_SECONDS = 60;
+
+    private final long seed;
+    private final int workers;
+    private final int operations;
+    private final int round;
+
+    /**
+     * @param seed
+     *            seed of the workers' schedules
+     * @param workers
+     *            number of threads invoking mocks concurrently. At least 2
+     * @param operations
+     *            operations each worker performs per scenario. A multiple of
+     *            the round
+     * @param round
+     *            operations between barriers
+     */
+    StressHarness(long seed, int workers, int operations, int round) {
+        if (workers < 2 || round < 1 || operations < round || operations % round != 0) {
+            throw new IllegalArgumentException(
+                    "Need at least 2 workers, and operations that are a multiple of the round");
+        }
+        this.seed = seed;
+        this.workers = workers;
+        this.operations = operations;
+        this.round = round;
+    }
+
+    /** @return the scenarios run by {@link #runAll(PrintStream)} */
+    static List<Scenario> scenarios() {
+        return Arrays.<Scenario> asList(new CaptureScenario(false), new CaptureScenario(true),
+                new StubSwapScenario(), new ScriptedScenario());
+    }
+
+    /**
+     * Run every scenario on every available kind of thread, printing each
+     * result as it completes
+     *
+     * @return the results
+     */
+    List<Result> runAll(PrintStream out) throws InterruptedException {
+        out.printf("seed %d, %d workers, %,d operations per worker, barrier every %,d%n", seed, workers, operations,
+                round);
+        List<Result> results = new ArrayList<Result>();
+        for (ThreadMode mode : ThreadMode.values()) {
+            for (Scenario scenario : scenarios()) {
+                Result result = run(scenario, mode);
+                if (result == null) {
+                    out.printf("%s threads aren't available on this JVM, skipped%n", mode.name().toLowerCase());
+                    break;
+                }
+                out.println(result);
+                for (String violation : result.violations()) {
+                    out.println("    " + violation);
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Run one scenario on one kind of thread
+     *
+     * @return the result. 'null' if the kind of thread isn't available
+     */
+    Result run(final Scenario scenario, ThreadMode mode) throws InterruptedException {
+        ExecutorService executor = mode.newExecutor(workers);
+        if (executor == null) {
+            return null;
+        }
+
+        scenario.setUp(workers, operations);
+        final long[][] latencies = new long[workers][operations];
+        final long[] startedAt = new long[1];
+        final CyclicBarrier barrier = new CyclicBarrier(workers, new Runnable() {
+            @Override
+            public void run() {
+                if (startedAt[0] == 0) {
+                    startedAt[0] = System.nanoTime();
+                }
+            }
+        });
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                final int worker = w;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        work(scenario, worker, barrier, latencies[worker]);
+                        return null;
+                    }
+                }));
+            }
+
+            List<String> violations = new ArrayList<String>();
+            for (int w = 0; w < workers; w++) {
+                try {
+                    futures.get(w).get();
+                } catch (ExecutionException e) {
+                    violations.add("Worker " + w + " failed: " + e.getCause());
+                }
+            }
+            long elapsed = System.nanoTime() - startedAt[0];
+            violations.addAll(scenario.verify());
+
+            long[] merged = new long[workers * operations];
+            for (int w = 0; w < workers; w++) {
+                System.arraycopy(latencies[w], 0, merged, w * operations, operations);
+            }
+            return new Result(scenario.name(), mode, workers, elapsed, merged, violations);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(BARRIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void work(Scenario scenario, int worker, CyclicBarrier barrier, long[] latencies) throws Exception {
+        Random schedule = new Random(seed + worker * GOLDEN_GAMMA);
+        for (int operation = 0; operation < operations; operation++) {
+            if (operation % round == 0) {
+                barrier.await(BARRIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+
+            // seeded pause, so threads drift in and out of step reproducibly
+            int spins = schedule.nextInt(MAX_SPINS);
+            for (int i = 0; i < spins; i++) {
+                Thread.onSpinWait();
+            }
+            if (spins == 0) {
+                Thread.yield();
+            }
+
+            long start = System.nanoTime();
+            scenario.operate(worker, operation, schedule);
+            latencies[operation] = System.nanoTime() - start;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long seed = System.nanoTime();
+        int workers = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+        int operations = 100000;
+        int round = 1000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("-seed".equals(args[i])) {
+                seed = Long.parseLong(args[i + 1]);
+            } else if ("-workers".equals(args[i])) {
+                workers = Integer.parseInt(args[i + 1]);
+            } else if ("-operations".equals(args[i])) {
+                operations = Integer.parseInt(args[i + 1]);
+            } else if ("-round".equals(args[i])) {
+                round = Integer.parseInt(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        boolean passed = true;
+        for (Result result : new StressHarness(seed, workers, operations, round).runAll(System.out)) {
+            passed &= result.passed();
+        }
+        if (!passed) {
+            System.out.println("FAILED, rerun with -seed " + seed);
+            System.exit(1);
+        }
+    }
+}
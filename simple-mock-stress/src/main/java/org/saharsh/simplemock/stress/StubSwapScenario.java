@@ -0,0 +1,78 @@
+package org.saharsh.simplemock.stress;
+
+import java.util.List;
+import java.util.Random;
+
+import org.saharsh.simplemock.Mock;
+import org.saharsh.simplemock.SimpleMock;
+
+/**
+ * Worker 0 keeps replacing a stub with one returning the next version, while
+ * the other workers invoke it. Every invocation must return a version that has
+ * been published, and no worker may ever see a version older than one it has
+ * already seen.
+ *
+ * @author Saharsh Singh
+ */
+final class StubSwapScenario implements Scenario {
+
+    private int workers;
+    private int operations;
+    private Mock<Service> mock;
+    private volatile int published;
+    private int[] lastSeen;
+    private Violations violations;
+
+    @Override
+    public String name() {
+        return "stub-swap";
+    }
+
+    @Override
+    public void setUp(int workers, int operations) {
+        this.workers = workers;
+        this.operations = operations;
+        mock = SimpleMock.mockType(Service.class);
+        published = 0;
+        mock.setReturnValue(0, "version");
+        lastSeen = new int[workers];
+        violations = new Violations();
+    }
+
+    @Override
+    public void operate(int worker, int operation, Random random) {
+        if (worker == 0) {
+            // announced before the swap, so a worker that sees the new stub
+            // also sees it announced
+            int version = operation + 1;
+            published = version;
+            mock.setReturnValue(version, "version");
+            return;
+        }
+
+        Integer version = mock.getMocked().version();
+        int newest = published;
+        if (version == null) {
+            violations.add("Worker " + worker + " got no version");
+        } else if (version > newest) {
+            violations.add("Worker " + worker + " got version " + version + " before it was published");
+        } else if (version < lastSeen[worker]) {
+            violations.add("Worker " + worker + " went back from version " + lastSeen[worker] + " to " + version);
+        } else {
+            lastSeen[worker] = version;
+        }
+    }
+
+    @Override
+    public List<String> verify() {
+        int invocations = mock.getCapturedRequestsView("version").size();
+        if (invocations != (workers - 1) * operations) {
+            violations.add("Captured " + invocations + " invocations, expected " + (workers - 1) * operations);
+        }
+        return violations.toList();
+    }
+
+    public static interface Service {
+        Integer version();
+    }
+}
@@ -0,0 +1,44 @@
+package org.saharsh.simplemock.stress;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kinds of threads the {@link StressHarness} runs workers on
+ *
+ * @author Saharsh Singh
+ */
+enum ThreadMode {
+
+    /** A fixed pool of platform threads, one per worker */
+    PLATFORM {
+        @Override
+        ExecutorService newExecutor(int workers) {
+            return Executors.newFixedThreadPool(workers);
+        }
+    },
+
+    /**
+     * A virtual thread per worker. Looked up reflectively, so the harness
+     * still builds and runs on JVMs without virtual threads.
+     */
+    VIRTUAL {
+        @Override
+        ExecutorService newExecutor(int workers) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (Exception e) {
+                // older JVM, or a preview feature that isn't enabled
+                return null;
+            }
+        }
+    };
+
+    /**
+     * @return executor able to run all workers at once. 'null' if this kind of
+     *         thread isn't available on the running JVM
+     */
+    abstract ExecutorService newExecutor(int workers);
+}
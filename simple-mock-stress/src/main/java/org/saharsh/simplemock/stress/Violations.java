@@ -0,0 +1,35 @@
+package org.saharsh.simplemock.stress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects invariant violations from many threads, keeping only the first few
+ * descriptions so a badly broken run doesn't flood the report
+ *
+ * @author Saharsh Singh
+ */
+final class Violations {
+
+    private static final int KEPT = 10;
+
+    private final ConcurrentLinkedQueue<String> descriptions = new ConcurrentLinkedQueue<String>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    void add(String description) {
+        if (count.incrementAndGet() <= KEPT) {
+            descriptions.add(description);
+        }
+    }
+
+    List<String> toList() {
+        List<String> violations = new ArrayList<String>(descriptions);
+        int dropped = count.get() - violations.size();
+        if (dropped > 0) {
+            violations.add("... and " + dropped + " more");
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,64 @@
+package org.saharsh.simplemock.stress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStressHarness {
+
+    @Test
+    public void test_runAll_for_passing_every_scenario() throws Exception {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        List<Result> results = new StressHarness(42L, 4, 2000, 100).runAll(new PrintStream(report, true));
+
+        Assert.assertTrue(results.size() >= StressHarness.scenarios().size());
+        for (Result result : results) {
+            Assert.assertTrue(result.violations().toString(), result.passed());
+            Assert.assertTrue(result.throughput() > 0);
+        }
+        Assert.assertTrue(report.toString().startsWith("seed 42, 4 workers"));
+    }
+
+    @Test
+    public void test_run_when_virtual_threads_unavailable_or_available() throws Exception {
+        Result result = new StressHarness(7L, 2, 100, 10).run(new StubSwapScenario(), ThreadMode.VIRTUAL);
+        if (ThreadMode.VIRTUAL.newExecutor(1) == null) {
+            Assert.assertNull(result);
+        } else {
+            Assert.assertTrue(result.passed());
+        }
+    }
+
+    @Test
+    public void test_run_stub_swaps_for_reporting_no_false_violations() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            Result result = new StressHarness(seed, 8, 5000, 100).run(new StubSwapScenario(), ThreadMode.PLATFORM);
+            Assert.assertTrue(result.violations().toString(), result.passed());
+        }
+    }
+
+    @Test
+    public void test_percentile_for_nearest_rank() {
+        long[] latencies = new long[1000];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[latencies.length - 1 - i] = i + 1;
+        }
+        Result result = new Result("test", ThreadMode.PLATFORM, 1, 1000000000L, latencies,
+                Collections.<String> emptyList());
+
+        Assert.assertEquals(500, result.percentile(50));
+        Assert.assertEquals(990, result.percentile(99));
+        Assert.assertEquals(999, result.percentile(99.9));
+        Assert.assertEquals(1000, result.percentile(100));
+        Assert.assertEquals(1000.0, result.throughput(), 0.001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_when_operations_not_multiple_of_round() {
+        new StressHarness(1L, 2, 150, 100);
+    }
+}
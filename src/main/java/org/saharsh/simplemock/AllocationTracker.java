@@ -0,0 +1,64 @@
+package org.saharsh.simplemock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Measures the bytes the invoking thread allocates during invocations of
+ * mocked methods, including the capture and any mock implementation, using
+ * the thread allocation counters of {@link ThreadMXBean}. Registered with
+ * {@link InvocationHooks} while tracking is enabled.
+ *
+ * @author Saharsh Singh
+ */
+final class AllocationTracker {
+
+    private final ThreadMXBean threads;
+    private final int sampleEvery;
+
+    // allocated by reading the counter itself, subtracted from measurements
+    private final long overhead;
+
+    AllocationTracker(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw MockException.wrap(new IllegalArgumentException("sampleEvery must be at least 1"));
+        }
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof ThreadMXBean) || !((ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            throw MockException.wrap(new UnsupportedOperationException(
+                    "Thread allocation counters aren't supported by this JVM"));
+        }
+        this.threads = (ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        this.sampleEvery = sampleEvery;
+
+        long overhead = Long.MAX_VALUE;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 16; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, threads.getThreadAllocatedBytes(thread) - before);
+        }
+        this.overhead = overhead;
+    }
+
+    Object measure(InvocationHooks hooks, Mock<?> mock, Object mocked, Method method, Object[] args)
+            throws Throwable {
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return hooks.record(mock, mocked, method, args);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        try {
+            return hooks.record(mock, mocked, method, args);
+        } finally {
+            long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+            mock.allocated(method, Math.max(0, allocated));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.saharsh.simplemock;
+
+/**
+ * Used to select captured requests by the arguments that were passed in
+ *
+ * @author Saharsh Singh
+ */
+public interface ArgumentMatcher {
+    boolean matches(Object[] args);
+}
@@ -0,0 +1,56 @@
+package org.saharsh.simplemock;
+
+/**
+ * A mocked method invoked a different number of times in two traces, see
+ * {@link TraceDiff}
+ *
+ * @author Saharsh Singh
+ */
+public final class CallCountChange {
+
+    private final String method;
+    private final long before;
+    private final long after;
+
+    CallCountChange(String method, long before, long after) {
+        this.method = method;
+        this.before = before;
+        this.after = after;
+    }
+
+    /** @return signature of the method, e.g. 'findById(java.lang.Long)' */
+    public String getMethod() {
+        return method;
+    }
+
+    /** @return invocations in the earlier trace */
+    public long getBefore() {
+        return before;
+    }
+
+    /** @return invocations in the later trace */
+    public long getAfter() {
+        return after;
+    }
+
+    /**
+     * @return invocations in the later trace per invocation in the earlier
+     *         one. Infinite if the method wasn't invoked before
+     */
+    public double getRatio() {
+        return before == 0 ? Double.POSITIVE_INFINITY : (double) after / before;
+    }
+
+    @Override
+    public String toString() {
+        String change;
+        if (before == 0) {
+            change = "new";
+        } else if (after == 0) {
+            change = "removed";
+        } else {
+            change = String.format("x%.2f", getRatio());
+        }
+        return method + ": " + before + " -> " + after + " (" + change + ")";
+    }
+}
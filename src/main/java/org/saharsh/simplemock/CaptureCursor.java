@@ -0,0 +1,30 @@
+package org.saharsh.simplemock;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally reads requests captured for a mocked method. Each request is
+ * returned exactly once, so polling a cursor only ever visits what has been
+ * captured since the last read. If captured requests are cleared, the cursor
+ * starts over from the beginning of the new captures.
+ * <p>
+ * A cursor is not thread safe, but can be read while the mocked method is
+ * being invoked concurrently.
+ *
+ * @author Saharsh Singh
+ */
+public interface CaptureCursor extends Iterator<Object[]> {
+
+    /** @return number of captured requests not yet read through this cursor */
+    int available();
+
+    /**
+     * Pass every captured request not yet read through this cursor to the
+     * given action
+     *
+     * @param action
+     *            receives the arguments of each request, in order of capture
+     */
+    void forEachNew(Consumer<? super Object[]> action);
+}
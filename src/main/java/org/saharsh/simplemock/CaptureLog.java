@@ -0,0 +1,688 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Method;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of the arguments captured for a single mocked method.
+ * <p>
+ * Captures are stored in chunks that double in size, so appending never
+ * copies previously captured requests and reading one never needs a lock.
+ * Writers append under a short lock and then publish the new size
+ * through a volatile write; readers only look at entries below the size they
+ * read, so they always see a consistent prefix of the log, no matter how many
+ * threads are capturing concurrently.
+ * <p>
+ * When a {@link CaptureProjection} or {@link LongCaptureProjection} is set,
+ * it runs at call time and only its result is kept, so the log stops pinning
+ * the original arguments. When interning, each distinct argument tuple is kept
+ * once and invocations are recorded as runs of tuple ids, so memory grows with
+ * the number of distinct calls rather than the number of calls.
+ *
+ * @author Saharsh Singh
+ */
+final class CaptureLog {
+
+    private static final int FIRST_CHUNK_BITS = 4;
+    private static final int MAX_CHUNKS = 32 - FIRST_CHUNK_BITS;
+
+    private volatile Entries entries = new ObjectEntries(null);
+    private volatile int waiters;
+
+    // diagnostics, kept across clearing
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder measuredInvocations = new LongAdder();
+
+    /** Capture the arguments of one invocation */
+    void add(Object[] args) {
+        invocations.increment();
+        entries.capture(args);
+
+        // the size is published before 'waiters' is read, and waiters register
+        // before reading the size, so either this thread sees the waiter or
+        // the waiter sees the new entry. Nobody waiting costs one volatile read.
+        if (waiters != 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Block until at least the given number of invocations have been captured
+     *
+     * @return 'false' if the timeout elapsed first
+     */
+    boolean awaitSize(int count, long timeoutNanos) throws InterruptedException {
+        if (entries.size >= count) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (this) {
+            waiters++;
+            try {
+                while (entries.size < count) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return true;
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    /**
+     * Block until an invocation accepted by the matcher has been captured.
+     * Invocations captured before this call are considered too.
+     *
+     * @return the arguments of the first matching invocation. 'null' if the
+     *         timeout elapsed first
+     */
+    Object[] awaitMatch(ArgumentMatcher matcher, long timeoutNanos) throws InterruptedException {
+        final CaptureCursor cursor = cursor();
+        final long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            while (cursor.hasNext()) {
+                Object[] args = cursor.next();
+                if (matcher.matches(args)) {
+                    return args;
+                }
+            }
+            synchronized (this) {
+                waiters++;
+                try {
+                    while (!cursor.hasNext()) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return null;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                } finally {
+                    waiters--;
+                }
+            }
+        }
+    }
+
+    /** Discard all captured arguments. Live views and cursors start over. */
+    void clear() {
+        synchronized (this) {
+            entries = entries.empty();
+        }
+    }
+
+    /**
+     * Discard all captured arguments and diagnostics, keeping the projection
+     * or interning in use. Live views, cursors and waiters keep working.
+     */
+    void reset() {
+        synchronized (this) {
+            entries = entries.empty();
+            invocations.reset();
+            allocatedBytes.reset();
+            measuredInvocations.reset();
+        }
+    }
+
+    /** @return 'true' if whole argument arrays are kept, with no projection or interning */
+    boolean capturesByDefault() {
+        return entries.capturesByDefault();
+    }
+
+    /**
+     * Keep only what the projection extracts from each invocation's arguments.
+     * Previously captured arguments are discarded.
+     */
+    void project(CaptureProjection projection) {
+        synchronized (this) {
+            entries = new ObjectEntries(projection);
+        }
+    }
+
+    /**
+     * Keep only the primitive value the projection extracts from each
+     * invocation's arguments. Previously captured arguments are discarded.
+     */
+    void projectLongs(LongCaptureProjection projection) {
+        synchronized (this) {
+            entries = new LongEntries(projection);
+        }
+    }
+
+    /**
+     * Keep each distinct argument tuple once, and record invocations as runs
+     * of repeated tuples. Previously captured arguments are discarded.
+     */
+    void intern() {
+        synchronized (this) {
+            entries = new InternedEntries();
+        }
+    }
+
+    /**
+     * @return copy of the captured values, if a {@link LongCaptureProjection}
+     *         is in use. 'null' otherwise
+     */
+    long[] longs() {
+        Entries snapshot = entries;
+        if (!(snapshot instanceof LongEntries)) {
+            return null;
+        }
+        return ((LongEntries) snapshot).toArray();
+    }
+
+    /** Record the bytes allocated by one measured invocation */
+    void allocated(long bytes) {
+        allocatedBytes.add(bytes);
+        measuredInvocations.increment();
+    }
+
+    /** @return invocations captured, including cleared ones */
+    long invocations() {
+        return invocations.sum();
+    }
+
+    /** @return diagnostics of the method this log captures */
+    MethodDiagnostics diagnostics(Class<?> mockedType, Method method) {
+        Entries snapshot = entries;
+        int size = snapshot.size;
+        return new MethodDiagnostics(mockedType, method, invocations.sum(), size, snapshot.capturedArrays(size),
+                snapshot.estimateBytes(size), allocatedBytes.sum(), measuredInvocations.sum());
+    }
+
+    /** @return number of invocations captured so far */
+    int size() {
+        return entries.size;
+    }
+
+    /** @return the last captured arguments. 'null' if there are none */
+    Object[] last() {
+        Entries snapshot = entries;
+        int size = snapshot.size;
+        return size == 0 ? null : snapshot.get(size - 1);
+    }
+
+    /**
+     * @return copy of the requests captured at the time of this call. Reads
+     *         one generation and one size, so clearing concurrently can't
+     *         leave it inconsistent
+     */
+    List<Object[]> copy() {
+        Entries snapshot = entries;
+        int size = snapshot.size;
+        List<Object[]> copy = new ArrayList<Object[]>(size);
+        for (int i = 0; i < size; i++) {
+            copy.add(snapshot.get(i));
+        }
+        return copy;
+    }
+
+    /** @return read-only list that always reflects the current log */
+    LiveView view() {
+        return new LiveView();
+    }
+
+    /**
+     * @return spliterator over the requests captured at the time of this call
+     */
+    Spliterator<Object[]> spliterator() {
+        final Entries snapshot = entries;
+        final int size = snapshot.size;
+        return Spliterators.spliterator(new Iterator<Object[]>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Object[] next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }, size, Spliterator.ORDERED | Spliterator.SIZED | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Count the captured requests accepted by the matcher, without copying
+     * them anywhere
+     */
+    int count(ArgumentMatcher matcher) {
+        Entries snapshot = entries;
+        return snapshot.count(matcher, snapshot.size);
+    }
+
+    /** @return cursor positioned at the start of the log */
+    CaptureCursor cursor() {
+        return new Cursor();
+    }
+
+    private static int chunkOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros(index + (1 << FIRST_CHUNK_BITS)) - FIRST_CHUNK_BITS;
+    }
+
+    private static int offsetOf(int index, int chunk) {
+        return index + (1 << FIRST_CHUNK_BITS) - (1 << (chunk + FIRST_CHUNK_BITS));
+    }
+
+    private static int chunkLength(int chunk) {
+        return 1 << (chunk + FIRST_CHUNK_BITS);
+    }
+
+    // bytes used by the chunks holding 'size' elements of the given width
+    private static long chunkBytes(int size, int width) {
+        long bytes = 0;
+        for (int chunk = 0, held = 0; held < size; chunk++) {
+            bytes += Footprint.array(chunkLength(chunk), width);
+            held += chunkLength(chunk);
+        }
+        return bytes;
+    }
+
+    /**
+     * One generation of the log, replaced wholesale when the log is cleared or
+     * its projection changes. 'size' is only written while holding the
+     * generation's monitor, after the entry itself has been stored.
+     */
+    private abstract static class Entries {
+
+        volatile int size;
+
+        // projections run outside of the lock, only the append is guarded
+        abstract void capture(Object[] args);
+
+        // callers must have read 'size' first and stay below it
+        abstract Object[] get(int index);
+
+        abstract Entries empty();
+
+        // 'true' for whole argument arrays, as captured without a projection
+        boolean capturesByDefault() {
+            return false;
+        }
+
+        // argument arrays kept for the first 'size' entries
+        abstract int capturedArrays(int size);
+
+        // rough size of everything kept for the first 'size' entries
+        abstract long estimateBytes(int size);
+
+        // count matches among the first 'size' entries
+        int count(ArgumentMatcher matcher, int size) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (matcher.matches(get(i))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static final class ObjectEntries extends Entries {
+
+        private final CaptureProjection projection;
+        private final Object[][] chunks = new Object[MAX_CHUNKS][];
+
+        ObjectEntries(CaptureProjection projection) {
+            this.projection = projection;
+        }
+
+        @Override
+        void capture(Object[] args) {
+            append(projection == null ? args : projection.project(args));
+        }
+
+        private synchronized void append(Object[] projected) {
+            int index = size;
+            int chunk = chunkOf(index);
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new Object[chunkLength(chunk)];
+            }
+            chunks[chunk][offsetOf(index, chunk)] = projected;
+            size = index + 1;
+        }
+
+        @Override
+        Object[] get(int index) {
+            int chunk = chunkOf(index);
+            return (Object[]) chunks[chunk][offsetOf(index, chunk)];
+        }
+
+        @Override
+        Entries empty() {
+            return new ObjectEntries(projection);
+        }
+
+        @Override
+        boolean capturesByDefault() {
+            return projection == null;
+        }
+
+        @Override
+        int capturedArrays(int size) {
+            return size;
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            long bytes = chunkBytes(size, Footprint.REFERENCE);
+            for (int i = 0; i < size; i++) {
+                bytes += Footprint.arguments(get(i));
+            }
+            return bytes;
+        }
+    }
+
+    private static final class LongEntries extends Entries {
+
+        private final LongCaptureProjection projection;
+        private final long[][] chunks = new long[MAX_CHUNKS][];
+
+        LongEntries(LongCaptureProjection projection) {
+            this.projection = projection;
+        }
+
+        @Override
+        void capture(Object[] args) {
+            append(projection.project(args));
+        }
+
+        private synchronized void append(long projected) {
+            int index = size;
+            int chunk = chunkOf(index);
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new long[chunkLength(chunk)];
+            }
+            chunks[chunk][offsetOf(index, chunk)] = projected;
+            size = index + 1;
+        }
+
+        // values are boxed on read, so only readers pay for the allocation
+        @Override
+        Object[] get(int index) {
+            return new Object[] { getLong(index) };
+        }
+
+        long getLong(int index) {
+            int chunk = chunkOf(index);
+            return chunks[chunk][offsetOf(index, chunk)];
+        }
+
+        long[] toArray() {
+            int size = this.size;
+            long[] copy = new long[size];
+            int copied = 0;
+            for (int chunk = 0; copied < size; chunk++) {
+                int length = Math.min(chunkLength(chunk), size - copied);
+                System.arraycopy(chunks[chunk], 0, copy, copied, length);
+                copied += length;
+            }
+            return copy;
+        }
+
+        @Override
+        Entries empty() {
+            return new LongEntries(projection);
+        }
+
+        @Override
+        int capturedArrays(int size) {
+            return 0;
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            return chunkBytes(size, 8);
+        }
+    }
+
+    /**
+     * Distinct argument tuples, numbered in the order first seen, plus a log
+     * of (tuple id, end) runs, where 'end' is the number of invocations
+     * captured up to and including the run. A repeated invocation only moves
+     * the end of the last run, and a new tuple only costs a map entry.
+     */
+    private static final class InternedEntries extends Entries {
+
+        // guarded by the lock, like everything else here. Tuples hash their
+        // content when created, so only the lookup itself happens under it
+        private final Map<Tuple, Integer> ids = new HashMap<Tuple, Integer>();
+        private final Object[][] tuples = new Object[MAX_CHUNKS][];
+        private final int[][] runIds = new int[MAX_CHUNKS][];
+        private final int[][] runEnds = new int[MAX_CHUNKS][];
+        private int distinct;
+
+        // written before 'size', so a reader that has read 'size' sees every
+        // run, and every tuple, that it covers
+        private volatile int runs;
+
+        @Override
+        void capture(Object[] args) {
+            append(new Tuple(args));
+        }
+
+        private synchronized void append(Tuple tuple) {
+            Integer id = ids.get(tuple);
+            if (id == null) {
+                id = distinct++;
+                int chunk = chunkOf(id);
+                if (tuples[chunk] == null) {
+                    tuples[chunk] = new Object[chunkLength(chunk)];
+                }
+                tuples[chunk][offsetOf(id, chunk)] = tuple.args;
+                ids.put(tuple, id);
+            }
+
+            int index = size;
+            int last = runs - 1;
+            if (last >= 0 && runIds[chunkOf(last)][offsetOf(last, chunkOf(last))] == id) {
+                runEnds[chunkOf(last)][offsetOf(last, chunkOf(last))] = index + 1;
+            } else {
+                int run = last + 1;
+                int chunk = chunkOf(run);
+                if (runIds[chunk] == null) {
+                    runIds[chunk] = new int[chunkLength(chunk)];
+                    runEnds[chunk] = new int[chunkLength(chunk)];
+                }
+                runIds[chunk][offsetOf(run, chunk)] = id;
+                runEnds[chunk][offsetOf(run, chunk)] = index + 1;
+                runs = run + 1;
+            }
+            size = index + 1;
+        }
+
+        @Override
+        Object[] get(int index) {
+            // first run ending after the index. Ends past the caller's size
+            // only belong to runs after the one holding the index, or to the
+            // run holding it, so they don't change the answer
+            int low = 0;
+            int high = runs - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (end(middle) > index) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return tuple(runIds[chunkOf(low)][offsetOf(low, chunkOf(low))]);
+        }
+
+        // the matcher runs once per run instead of once per invocation
+        @Override
+        int count(ArgumentMatcher matcher, int size) {
+            int runs = this.runs;
+            int count = 0;
+            int start = 0;
+            for (int run = 0; run < runs && start < size; run++) {
+                int end = Math.min(end(run), size);
+                if (matcher.matches(tuple(runIds[chunkOf(run)][offsetOf(run, chunkOf(run))]))) {
+                    count += end - start;
+                }
+                start = end;
+            }
+            return count;
+        }
+
+        private int end(int run) {
+            int chunk = chunkOf(run);
+            return runEnds[chunk][offsetOf(run, chunk)];
+        }
+
+        private Object[] tuple(int id) {
+            int chunk = chunkOf(id);
+            return (Object[]) tuples[chunk][offsetOf(id, chunk)];
+        }
+
+        @Override
+        Entries empty() {
+            return new InternedEntries();
+        }
+
+        private synchronized int distinct() {
+            return distinct;
+        }
+
+        // may include tuples first seen after 'size' was read
+        @Override
+        int capturedArrays(int size) {
+            return distinct();
+        }
+
+        @Override
+        long estimateBytes(int size) {
+            int distinct = distinct();
+            long bytes = chunkBytes(distinct, Footprint.REFERENCE) + chunkBytes(runs, 4) * 2
+                    + distinct * Footprint.INTERNED_ENTRY;
+            for (int id = 0; id < distinct; id++) {
+                Object[] tuple = tuple(id);
+                bytes += Footprint.arguments(tuple);
+            }
+            return bytes;
+        }
+    }
+
+    /** Argument tuple compared by content, including the content of arrays */
+    private static final class Tuple {
+
+        final Object[] args;
+        private final int hash;
+
+        Tuple(Object[] args) {
+            this.args = args;
+            this.hash = Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Tuple && hash == ((Tuple) other).hash
+                    && Arrays.deepEquals(args, ((Tuple) other).args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    final class LiveView extends AbstractList<Object[]> implements RandomAccess {
+
+        @Override
+        public Object[] get(int index) {
+            Entries snapshot = entries;
+            if (index < 0 || index >= snapshot.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + snapshot.size);
+            }
+            return snapshot.get(index);
+        }
+
+        @Override
+        public int size() {
+            return entries.size;
+        }
+
+        @Override
+        public Spliterator<Object[]> spliterator() {
+            return CaptureLog.this.spliterator();
+        }
+    }
+
+    private final class Cursor implements CaptureCursor {
+
+        private Entries generation = entries;
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            sync();
+            return position < generation.size;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return generation.get(position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int available() {
+            sync();
+            return generation.size - position;
+        }
+
+        @Override
+        public void forEachNew(Consumer<? super Object[]> action) {
+            sync();
+            int size = generation.size;
+            while (position < size) {
+                action.accept(generation.get(position++));
+            }
+        }
+
+        // start over if the log has been cleared since the last read
+        private void sync() {
+            Entries current = entries;
+            if (current != generation) {
+                generation = current;
+                position = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.saharsh.simplemock;
+
+/**
+ * Used to specify what is captured for each invocation of a mocked method.
+ * Runs at call time; only the returned values are kept, so the original
+ * arguments can be garbage collected.
+ *
+ * @author Saharsh Singh
+ */
+public interface CaptureProjection {
+    Object[] project(Object[] args);
+}
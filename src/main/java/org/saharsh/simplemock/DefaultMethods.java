@@ -0,0 +1,117 @@
+package org.saharsh.simplemock;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Invokes the real implementation of interface 'default' methods on mocked
+ * instances. Each method is resolved once into a special-caller
+ * {@link MethodHandle}, cached on the mock class, and invoked directly after
+ * that.
+ * <p>
+ * Interfaces in packages that aren't open to Simple Mock, like the JDK's,
+ * refuse the lookup. Their default methods are then called through an
+ * interface of the mock extending them, and if there's none, they're left
+ * unstubbed.
+ *
+ * @author Saharsh Singh
+ */
+final class DefaultMethods {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    // cached for methods whose real implementation can't be reached
+    private static final MethodHandle UNREACHABLE = MethodHandles.constant(Object.class, null);
+
+    private static final ClassValue<ConcurrentMap<Method, MethodHandle>> HANDLES =
+            new ClassValue<ConcurrentMap<Method, MethodHandle>>() {
+                @Override
+                protected ConcurrentMap<Method, MethodHandle> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<Method, MethodHandle>();
+                }
+            };
+
+    // static access only
+    private DefaultMethods() {
+    }
+
+    /** @return 'false' if the real implementation of the method can't be called on the mocked instance */
+    static boolean isCallable(Object mocked, Method method) {
+        return handle(mocked, method) != UNREACHABLE;
+    }
+
+    /** Call the real implementation, which must be {@link #isCallable(Object, Method) callable} */
+    static Object invoke(Object mocked, Method method, Object[] args) throws Throwable {
+        Object[] arguments = args == null ? NO_ARGS : args;
+        return (Object) handle(mocked, method).invokeExact(mocked, arguments);
+    }
+
+    private static MethodHandle handle(Object mocked, Method method) {
+        ConcurrentMap<Method, MethodHandle> handles = HANDLES.get(mocked.getClass());
+        MethodHandle handle = handles.get(method);
+        if (handle == null) {
+            handle = resolve(mocked.getClass(), method);
+            handles.putIfAbsent(method, handle);
+        }
+        return handle;
+    }
+
+    // (Object mocked, Object[] args)Object handle bypassing any override
+    private static MethodHandle resolve(Class<?> mockClass, Method method) {
+        Class<?> declaringType = method.getDeclaringClass();
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.privateLookupIn(declaringType, MethodHandles.lookup())
+                    .unreflectSpecial(method, declaringType);
+        } catch (IllegalAccessException e) {
+            handle = resolveThroughSubtype(mockClass, method);
+            if (handle == null) {
+                return UNREACHABLE;
+            }
+        }
+        return handle.asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
+    // the declaring interface isn't open to us, try one of the mock's interfaces extending it
+    private static MethodHandle resolveThroughSubtype(Class<?> mockClass, Method method) {
+        MethodType type = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+        for (Class<?> subtype : interfaces(mockClass)) {
+            if (subtype == method.getDeclaringClass() || !method.getDeclaringClass().isAssignableFrom(subtype)) {
+                continue;
+            }
+            try {
+                return MethodHandles.privateLookupIn(subtype, MethodHandles.lookup())
+                        .findSpecial(subtype, method.getName(), type, subtype);
+            } catch (IllegalAccessException e) {
+                // not open to us either
+            } catch (NoSuchMethodException e) {
+                // not reachable from this interface
+            }
+        }
+        return null;
+    }
+
+    // every interface the class implements, directly or not
+    private static Set<Class<?>> interfaces(Class<?> type) {
+        Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            addInterfaces(current, interfaces);
+        }
+        return interfaces;
+    }
+
+    private static void addInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> implemented : type.getInterfaces()) {
+            if (interfaces.add(implemented)) {
+                addInterfaces(implemented, interfaces);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits a {@link MockInvocationEvent} around invocations of mocked methods.
+ * Registered with {@link InvocationHooks} while events are enabled. Only
+ * loaded once events are enabled, so mocks don't touch Flight Recorder classes
+ * otherwise.
+ *
+ * @author Saharsh Singh
+ */
+final class FlightRecorderEvents {
+
+    private final int sampleEvery;
+
+    FlightRecorderEvents(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw MockException.wrap(new IllegalArgumentException("sampleEvery must be at least 1"));
+        }
+        this.sampleEvery = sampleEvery;
+    }
+
+    Object record(Mock<?> mock, Object mocked, Method method, Object[] args) throws Throwable {
+
+        // sample without a shared counter, so recording doesn't add contention
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return mock.invoke(mocked, method, args);
+        }
+
+        MockInvocationEvent event = new MockInvocationEvent();
+        if (!event.isEnabled()) {
+            return mock.invoke(mocked, method, args);
+        }
+        event.begin();
+        try {
+            return mock.invoke(mocked, method, args);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.mockedType = mock.getMockedType();
+                event.method = MethodDiagnostics.signature(method);
+                event.stubbed = mock.isStubbed(method);
+                event.commit();
+            }
+        }
+    }
+}
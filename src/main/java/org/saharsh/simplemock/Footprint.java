@@ -0,0 +1,83 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Array;
+
+/**
+ * Rough estimates of heap usage, for {@link MethodDiagnostics}. Assumes a
+ * 64 bit JVM with compressed references: 12 byte object headers, 16 byte
+ * array headers, 4 byte references and sizes padded to 8 bytes. Only the
+ * arguments themselves are counted, not objects they refer to; objects of
+ * unknown types count as an empty object.
+ *
+ * @author Saharsh Singh
+ */
+final class Footprint {
+
+    static final int REFERENCE = 4;
+
+    // map node, key wrapper and boxed id of an interned tuple
+    static final int INTERNED_ENTRY = 32 + 24 + 16;
+
+    private static final int OBJECT = 16;
+    private static final int ARRAY_HEADER = 16;
+
+    // static access only
+    private Footprint() {
+    }
+
+    /** @return bytes used by an argument array and the arguments in it */
+    static long arguments(Object[] args) {
+        if (args == null) {
+            return 0;
+        }
+        long bytes = array(args.length, REFERENCE);
+        for (Object arg : args) {
+            bytes += shallow(arg);
+        }
+        return bytes;
+    }
+
+    private static long shallow(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 24;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT;
+        }
+        if (value instanceof String) {
+            // compact strings store Latin-1 text one byte per character
+            return 24 + array(((String) value).length(), 1);
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            int length = Array.getLength(value);
+            Class<?> component = type.getComponentType();
+            if (!component.isPrimitive()) {
+                return array(length, REFERENCE);
+            }
+            if (component == byte.class || component == boolean.class) {
+                return array(length, 1);
+            }
+            if (component == char.class || component == short.class) {
+                return array(length, 2);
+            }
+            if (component == int.class || component == float.class) {
+                return array(length, 4);
+            }
+            return array(length, 8);
+        }
+        return OBJECT;
+    }
+
+    /** @return bytes used by an array of the given length and element width */
+    static long array(int length, int width) {
+        return align(ARRAY_HEADER + (long) length * width);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
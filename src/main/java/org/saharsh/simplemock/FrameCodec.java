@@ -0,0 +1,144 @@
+package org.saharsh.simplemock;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the tagged values carried by {@link MockServer} frames.
+ * Every value starts with a one byte tag, followed by its big-endian encoding:
+ *
+ * <pre>
+ * 0 null      (nothing)
+ * 1 boolean   1 byte, 0 or 1
+ * 2 int       4 bytes
+ * 3 long      8 bytes
+ * 4 double    8 bytes
+ * 5 String    4 byte length, then that many bytes of UTF-8
+ * 6 byte[]    4 byte length, then that many bytes
+ * </pre>
+ *
+ * Other types aren't supported. In particular, Java serialization isn't used,
+ * so nothing read from a socket is ever deserialized into arbitrary classes.
+ *
+ * @author Saharsh Singh
+ */
+final class FrameCodec {
+
+    static final byte NULL = 0;
+    static final byte BOOLEAN = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte DOUBLE = 4;
+    static final byte STRING = 5;
+    static final byte BYTES = 6;
+
+    // static access only
+    private FrameCodec() {
+    }
+
+    /**
+     * Read one tagged value
+     *
+     * @throws IllegalArgumentException
+     *             if the value is malformed or truncated
+     */
+    static Object read(ByteBuffer in) {
+        try {
+            byte tag = in.get();
+            switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return in.get() != 0;
+            case INT:
+                return in.getInt();
+            case LONG:
+                return in.getLong();
+            case DOUBLE:
+                return in.getDouble();
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case BYTES:
+                return readBytes(in);
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated value", e);
+        }
+    }
+
+    /** @return the string read, without a tag */
+    static String readString(ByteBuffer in) {
+        try {
+            return new String(readBytes(in), StandardCharsets.UTF_8);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated string", e);
+        }
+    }
+
+    /**
+     * Write one tagged value, growing the buffer when needed
+     *
+     * @return the buffer written to, which is a new one if it had to grow
+     * @throws IllegalArgumentException
+     *             if the value can't be encoded
+     */
+    static ByteBuffer write(ByteBuffer out, Object value) {
+        if (value == null) {
+            return ensure(out, 1).put(NULL);
+        }
+        if (value instanceof Boolean) {
+            return ensure(out, 2).put(BOOLEAN).put((byte) (((Boolean) value) ? 1 : 0));
+        }
+        if (value instanceof Integer) {
+            return ensure(out, 5).put(INT).putInt((Integer) value);
+        }
+        if (value instanceof Long) {
+            return ensure(out, 9).put(LONG).putLong((Long) value);
+        }
+        if (value instanceof Double) {
+            return ensure(out, 9).put(DOUBLE).putDouble((Double) value);
+        }
+        if (value instanceof String) {
+            return writeBytes(ensure(out, 1).put(STRING), ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        if (value instanceof byte[]) {
+            return writeBytes(ensure(out, 1).put(BYTES), (byte[]) value);
+        }
+        throw new IllegalArgumentException("Can't encode value of " + value.getClass());
+    }
+
+    /** Write a string without a tag, growing the buffer when needed */
+    static ByteBuffer writeString(ByteBuffer out, String value) {
+        return writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return buffer with room for at least the given number of bytes */
+    static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < bytes) {
+            capacity *= 2;
+        }
+        buffer.flip();
+        return ByteBuffer.allocate(capacity).put(buffer);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer writeBytes(ByteBuffer out, byte[] bytes) {
+        return ensure(out, 4 + bytes.length).putInt(bytes.length).put(bytes);
+    }
+}
@@ -0,0 +1,23 @@
+package org.saharsh.simplemock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lists the types a test class mocks, so the 'simple-mock-maven-plugin' can
+ * generate their mock classes ahead of time. Has no effect at runtime; mocks
+ * are still created using {@link SimpleMock#mockType(Class, MockOption...)}.
+ *
+ * @author Saharsh Singh
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface GenerateMocks {
+
+    /** @return types to generate mock classes for */
+    Class<?>[] value();
+}
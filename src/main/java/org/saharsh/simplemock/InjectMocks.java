@@ -0,0 +1,26 @@
+package org.saharsh.simplemock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a test class holding the object under test, which
+ * {@link SimpleMockRule} wires up with the test class's {@link Mocked} fields
+ * before each test.
+ * <p>
+ * If the field is 'null', the object is created using the constructor with
+ * the most parameters that can all be filled with mocks, or the 'no-arg'
+ * constructor. Then each of its non-final instance fields that a mock is
+ * assignable to is set to that mock. When several mocks are assignable to a
+ * field, only a mock whose field has the same name is used.
+ *
+ * @author Saharsh Singh
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface InjectMocks {
+}
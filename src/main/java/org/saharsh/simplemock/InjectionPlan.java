@@ -0,0 +1,243 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Which mocks a test class needs and where they go, worked out once per test
+ * class by reflecting over its {@link Mocked} and {@link InjectMocks} fields,
+ * so each test only has to create or reuse the mocks and set the fields.
+ *
+ * @author Saharsh Singh
+ */
+final class InjectionPlan {
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> testClass) {
+            return new InjectionPlan(testClass);
+        }
+    };
+
+    private final MockSlot[] slots;
+    private final Target[] targets;
+
+    private InjectionPlan(Class<?> testClass) {
+        List<MockSlot> slots = new ArrayList<MockSlot>();
+        List<Field> targetFields = new ArrayList<Field>();
+        for (Class<?> type = testClass; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Mocked mocked = field.getAnnotation(Mocked.class);
+                if (mocked != null) {
+                    slots.add(new MockSlot(accessible(field), mocked.options()));
+                }
+                if (field.isAnnotationPresent(InjectMocks.class)) {
+                    targetFields.add(accessible(field));
+                }
+            }
+        }
+        this.slots = slots.toArray(new MockSlot[0]);
+
+        this.targets = new Target[targetFields.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new Target(targetFields.get(i), this.slots);
+        }
+    }
+
+    /** @return plan for the test class, worked out on first use */
+    static InjectionPlan of(Class<?> testClass) {
+        return PLANS.get(testClass);
+    }
+
+    /**
+     * Fill the annotated fields of the test instance
+     *
+     * @return the mocks handed out, to pass to {@link #release(Mock[])}
+     */
+    Mock<?>[] inject(Object test) {
+        Mock<?>[] mocks = new Mock<?>[slots.length];
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                mocks[i] = slots[i].acquire();
+                slots[i].field.set(test, slots[i].wrapper ? mocks[i] : mocks[i].getMocked());
+            }
+            for (Target target : targets) {
+                target.inject(test, mocks);
+            }
+        } catch (Exception e) {
+            release(mocks);
+            throw MockException.wrap(e);
+        }
+        return mocks;
+    }
+
+    /**
+     * Reset the mocks and keep them for later tests. Mocks whose captured
+     * requests were projected or interned are dropped instead, since a reset
+     * keeps those settings and later tests shouldn't inherit them.
+     */
+    void release(Mock<?>[] mocks) {
+        for (int i = 0; i < mocks.length; i++) {
+            if (mocks[i] != null && mocks[i].capturesByDefault()) {
+                mocks[i].reset();
+                slots[i].pool.offer(mocks[i]);
+            }
+        }
+    }
+
+    private static Field accessible(Field field) {
+        if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+            throw MockException.wrap(new IllegalArgumentException(field + " must be a non-final instance field"));
+        }
+        field.setAccessible(true);
+        return field;
+    }
+
+    /** A {@link Mocked} field, and the reset mocks available for it */
+    private static final class MockSlot {
+
+        final Field field;
+        final Class<?> type;
+        final MockOption[] options;
+        final boolean wrapper;
+        final Queue<Mock<?>> pool = new ConcurrentLinkedQueue<Mock<?>>();
+
+        MockSlot(Field field, MockOption[] options) {
+            this.field = field;
+            this.options = options;
+            this.wrapper = field.getType() == Mock.class;
+            this.type = wrapper ? mockedType(field) : field.getType();
+        }
+
+        Mock<?> acquire() {
+            Mock<?> mock = pool.poll();
+            return mock != null ? mock : SimpleMock.mockType(type, options);
+        }
+
+        private static Class<?> mockedType(Field field) {
+            Type generic = field.getGenericType();
+            if (generic instanceof ParameterizedType) {
+                Type argument = ((ParameterizedType) generic).getActualTypeArguments()[0];
+                if (argument instanceof ParameterizedType) {
+                    argument = ((ParameterizedType) argument).getRawType();
+                }
+                if (argument instanceof Class) {
+                    return (Class<?>) argument;
+                }
+            }
+            throw MockException.wrap(
+                    new IllegalArgumentException(field + " must declare the mocked type, e.g. Mock<AnotherClass>"));
+        }
+    }
+
+    /** An {@link InjectMocks} field, with where each mock goes */
+    private static final class Target {
+
+        private final Field field;
+        private final Constructor<?> constructor;
+        private final int[] constructorSlots;
+        private final Field[] fields;
+        private final int[] fieldSlots;
+
+        Target(Field field, MockSlot[] slots) {
+            this.field = field;
+            Class<?> type = field.getType();
+
+            // greediest constructor that mocks can fill
+            Constructor<?> constructor = null;
+            int[] constructorSlots = null;
+            for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+                Class<?>[] parameterTypes = candidate.getParameterTypes();
+                if (constructor != null && parameterTypes.length <= constructorSlots.length) {
+                    continue;
+                }
+                int[] matched = new int[parameterTypes.length];
+                boolean complete = true;
+                for (int i = 0; i < parameterTypes.length && complete; i++) {
+                    matched[i] = match(slots, parameterTypes[i], null);
+                    complete = matched[i] >= 0;
+                }
+                if (complete) {
+                    constructor = candidate;
+                    constructorSlots = matched;
+                }
+            }
+            if (constructor != null) {
+                constructor.setAccessible(true);
+            }
+            this.constructor = constructor;
+            this.constructorSlots = constructorSlots;
+
+            List<Field> fields = new ArrayList<Field>();
+            List<Integer> fieldSlots = new ArrayList<Integer>();
+            for (Class<?> declaring = type; declaring != null && declaring != Object.class; declaring = declaring
+                    .getSuperclass()) {
+                for (Field candidate : declaring.getDeclaredFields()) {
+                    int modifiers = candidate.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                        continue;
+                    }
+                    int slot = match(slots, candidate.getType(), candidate.getName());
+                    if (slot >= 0) {
+                        candidate.setAccessible(true);
+                        fields.add(candidate);
+                        fieldSlots.add(slot);
+                    }
+                }
+            }
+            this.fields = fields.toArray(new Field[0]);
+            this.fieldSlots = new int[fieldSlots.size()];
+            for (int i = 0; i < this.fieldSlots.length; i++) {
+                this.fieldSlots[i] = fieldSlots.get(i);
+            }
+        }
+
+        void inject(Object test, Mock<?>[] mocks) throws Exception {
+            Object target = field.get(test);
+            if (target == null) {
+                if (constructor == null) {
+                    throw new IllegalStateException(
+                            field + " is null, and " + field.getType() + " has no constructor mocks can fill");
+                }
+                Object[] args = new Object[constructorSlots.length];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = mocks[constructorSlots[i]].getMocked();
+                }
+                target = constructor.newInstance(args);
+                field.set(test, target);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].set(target, mocks[fieldSlots[i]].getMocked());
+            }
+        }
+
+        // index of the mock to use for a value of the type. -1 if none, or
+        // several without one of the same name, fit
+        private static int match(MockSlot[] slots, Class<?> type, String name) {
+            if (type == Object.class) {
+                return -1;
+            }
+            int match = -1;
+            for (int i = 0; i < slots.length; i++) {
+                if (type.isAssignableFrom(slots[i].type)) {
+                    if (name != null && name.equals(slots[i].field.getName())) {
+                        return i;
+                    }
+                    if (match >= 0) {
+                        match = -2;
+                    } else if (match == -1) {
+                        match = i;
+                    }
+                }
+            }
+            return match < 0 ? -1 : match;
+        }
+    }
+}
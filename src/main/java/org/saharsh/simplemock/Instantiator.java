@@ -0,0 +1,85 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Allocates instances of classes without running any of their constructors,
+ * the same way deserialization does. The constructor used for this is
+ * generated once per class and cached on it.
+ * <p>
+ * This relies on 'sun.reflect.ReflectionFactory' from the 'jdk.unsupported'
+ * module, which is looked up reflectively so that nothing is linked against
+ * it. When it is missing, {@link #isAvailable()} returns 'false' and callers
+ * fall back to running a constructor.
+ *
+ * @author Saharsh Singh
+ */
+final class Instantiator {
+
+    private static final ReflectionFactory FACTORY = ReflectionFactory.find();
+
+    private static final ClassValue<Constructor<?>> ALLOCATORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                return FACTORY.newConstructorForSerialization(type, Object.class.getDeclaredConstructor());
+            } catch (Exception e) {
+                throw MockException.wrap(e);
+            }
+        }
+    };
+
+    // static access only
+    private Instantiator() {
+    }
+
+    /** @return 'true' if instances can be allocated without a constructor */
+    static boolean isAvailable() {
+        return FACTORY != null;
+    }
+
+    /**
+     * @return new instance of the type, with all fields left at their default
+     *         values, since no constructor of the type or its super classes
+     *         is run
+     */
+    static <T> T allocate(Class<T> type) {
+        if (FACTORY == null) {
+            throw MockException.wrap(new UnsupportedOperationException(
+                    "sun.reflect.ReflectionFactory isn't available to skip constructors"));
+        }
+        try {
+            return type.cast(ALLOCATORS.get(type).newInstance());
+        } catch (Exception e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    /** Reflective adapter for 'sun.reflect.ReflectionFactory' */
+    private static final class ReflectionFactory {
+
+        private final Object factory;
+        private final Method newConstructorForSerialization;
+
+        private ReflectionFactory(Object factory, Method newConstructorForSerialization) {
+            this.factory = factory;
+            this.newConstructorForSerialization = newConstructorForSerialization;
+        }
+
+        /** @return the adapter. 'null' if the factory can't be found */
+        static ReflectionFactory find() {
+            try {
+                Class<?> type = Class.forName("sun.reflect.ReflectionFactory");
+                return new ReflectionFactory(type.getMethod("getReflectionFactory").invoke(null),
+                        type.getMethod("newConstructorForSerialization", Class.class, Constructor.class));
+            } catch (ReflectiveOperationException | LinkageError | SecurityException e) {
+                return null;
+            }
+        }
+
+        Constructor<?> newConstructorForSerialization(Class<?> type, Constructor<?> constructor) throws Exception {
+            return (Constructor<?>) newConstructorForSerialization.invoke(factory, type, constructor);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Method;
+
+/**
+ * Observers run around every invocation of a mocked method: the
+ * {@link AllocationTracker}, then {@link FlightRecorderEvents}. Both register
+ * here, and a single immutable chain of whatever is registered is published
+ * through one volatile field, so while nothing is registered invocations pay
+ * for one read and one branch, no matter how many kinds of observers exist.
+ *
+ * @author Saharsh Singh
+ */
+final class InvocationHooks {
+
+    /** Registered observers. 'null' while none are registered */
+    static volatile InvocationHooks active;
+
+    // guarded by the class lock, 'active' is rebuilt from them
+    private static AllocationTracker allocationTracker;
+    private static FlightRecorderEvents flightRecorderEvents;
+
+    private final AllocationTracker allocations;
+    private final FlightRecorderEvents events;
+
+    private InvocationHooks(AllocationTracker allocations, FlightRecorderEvents events) {
+        this.allocations = allocations;
+        this.events = events;
+    }
+
+    /** Register the allocation tracker, replacing any other. 'null' to remove it */
+    static synchronized void setAllocationTracker(AllocationTracker tracker) {
+        allocationTracker = tracker;
+        publish();
+    }
+
+    /** Register the event recorder, replacing any other. 'null' to remove it */
+    static synchronized void setFlightRecorderEvents(FlightRecorderEvents recorder) {
+        flightRecorderEvents = recorder;
+        publish();
+    }
+
+    private static void publish() {
+        active = allocationTracker == null && flightRecorderEvents == null ? null
+                : new InvocationHooks(allocationTracker, flightRecorderEvents);
+    }
+
+    /** Invoke the mocked method through every registered observer */
+    Object invoke(Mock<?> mock, Object mocked, Method method, Object[] args) throws Throwable {
+        if (allocations != null) {
+            return allocations.measure(this, mock, mocked, method, args);
+        }
+        return record(mock, mocked, method, args);
+    }
+
+    /** Invoke the mocked method through the observers after the allocation tracker */
+    Object record(Mock<?> mock, Object mocked, Method method, Object[] args) throws Throwable {
+        if (events != null) {
+            return events.record(mock, mocked, method, args);
+        }
+        return mock.invoke(mocked, method, args);
+    }
+}
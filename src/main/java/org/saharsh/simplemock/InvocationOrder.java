@@ -0,0 +1,91 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Order in which the methods of a mock were invoked, across methods, kept as
+ * runs of consecutive invocations of the same method. A method invoked a
+ * thousand times in a row takes up a single run.
+ *
+ * @author Saharsh Singh
+ */
+final class InvocationOrder {
+
+    private static final int INITIAL_RUNS = 16;
+
+    private final ConcurrentMap<Method, Integer> ids = new ConcurrentHashMap<Method, Integer>();
+
+    // guarded by 'this'. Arrays are replaced, never modified, when they grow,
+    // so a snapshot keeps seeing the runs it covers
+    private final List<Method> methods = new ArrayList<Method>();
+    private int[] runIds = new int[INITIAL_RUNS];
+    private int[] runCounts = new int[INITIAL_RUNS];
+    private int runs;
+
+    void add(Method method) {
+        Integer id = ids.get(method);
+        synchronized (this) {
+            if (id == null) {
+                id = methods.size();
+                methods.add(method);
+                ids.put(method, id);
+            }
+            int last = runs - 1;
+            if (last >= 0 && runIds[last] == id && runCounts[last] != Integer.MAX_VALUE) {
+                runCounts[last]++;
+                return;
+            }
+            if (runs == runIds.length) {
+                runIds = Arrays.copyOf(runIds, runs * 2);
+                runCounts = Arrays.copyOf(runCounts, runs * 2);
+            }
+            runIds[runs] = id;
+            runCounts[runs] = 1;
+            runs++;
+        }
+    }
+
+    synchronized void clear() {
+        runIds = new int[INITIAL_RUNS];
+        runCounts = new int[INITIAL_RUNS];
+        runs = 0;
+    }
+
+    /** @return the runs recorded so far, without copying them */
+    synchronized Snapshot snapshot() {
+        return new Snapshot(new ArrayList<Method>(methods), runIds, runCounts, runs,
+                runs == 0 ? 0 : runCounts[runs - 1]);
+    }
+
+    /** Runs recorded up to a point in time */
+    static final class Snapshot {
+
+        final List<Method> methods;
+        final int runs;
+        private final int[] runIds;
+        private final int[] runCounts;
+        private final int lastCount;
+
+        Snapshot(List<Method> methods, int[] runIds, int[] runCounts, int runs, int lastCount) {
+            this.methods = methods;
+            this.runIds = runIds;
+            this.runCounts = runCounts;
+            this.runs = runs;
+            this.lastCount = lastCount;
+        }
+
+        Method method(int run) {
+            return methods.get(runIds[run]);
+        }
+
+        // the last run may have grown since, so its count was taken up front
+        int count(int run) {
+            return run == runs - 1 ? lastCount : runCounts[run];
+        }
+    }
+}
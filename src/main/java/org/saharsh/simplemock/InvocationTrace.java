@@ -0,0 +1,205 @@
+package org.saharsh.simplemock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Binary trace of the invocations of a mock, written by
+ * {@link Mock#writeTrace(OutputStream)} and compared by {@link TraceDiff}.
+ * Numbers are unsigned variable-length integers (7 bits per byte, least
+ * significant group first) unless stated otherwise:
+ *
+ * <pre>
+ * int     magic 'SMTR'
+ * byte    format version
+ * UTF     name of the mocked type
+ * number  count of methods, then for each, ordered by signature:
+ *   UTF     method signature with fully qualified parameter types, e.g.
+ *           'findById(java.lang.Long)'. Its index is its slot
+ *   number  invocations
+ * byte    1 if the order of invocations follows, 0 otherwise
+ * number  count of runs, then for each:
+ *   number  slot of the method invoked
+ *   number  consecutive invocations of it
+ * </pre>
+ *
+ * Reading keeps only the counts and, per pair of consecutive runs, the
+ * longest run, rather than the whole order.
+ *
+ * @author Saharsh Singh
+ */
+final class InvocationTrace {
+
+    private static final int MAGIC = 0x534D5452;
+    private static final int VERSION = 1;
+
+    // a class can't declare more methods than this
+    private static final int MAX_METHODS = 65535;
+
+    /** Signature of the start of the trace, as the caller of its first run */
+    static final String START = "";
+
+    final String mockedType;
+    final Map<String, Long> counts;
+
+    // callee signature -> previous run's signature -> longest run of callee
+    final Map<String, Map<String, Integer>> repeats;
+    final boolean ordered;
+
+    private InvocationTrace(String mockedType, Map<String, Long> counts, Map<String, Map<String, Integer>> repeats,
+            boolean ordered) {
+        this.mockedType = mockedType;
+        this.counts = counts;
+        this.repeats = repeats;
+        this.ordered = ordered;
+    }
+
+    /** Stream the trace out, without building it in memory first */
+    static void write(OutputStream stream, Class<?> mockedType, Map<Method, CaptureLog> logs,
+            InvocationOrder order) throws IOException {
+
+        // every method in the order has a capture log by the time it's there
+        InvocationOrder.Snapshot snapshot = order == null ? null : order.snapshot();
+        Map<String, Method> bySignature = new TreeMap<String, Method>();
+        for (Method method : logs.keySet()) {
+            bySignature.put(signature(method), method);
+        }
+
+        // varints are written a byte at a time, so buffer them
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(mockedType.getName());
+        writeNumber(out, bySignature.size());
+        Map<Method, Integer> slots = new HashMap<Method, Integer>();
+        for (Map.Entry<String, Method> entry : bySignature.entrySet()) {
+            slots.put(entry.getValue(), slots.size());
+            out.writeUTF(entry.getKey());
+            writeNumber(out, logs.get(entry.getValue()).invocations());
+        }
+
+        if (snapshot == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            writeNumber(out, snapshot.runs);
+            for (int run = 0; run < snapshot.runs; run++) {
+                // unless the mock was reset in the meantime
+                Integer slot = slots.get(snapshot.method(run));
+                writeNumber(out, slot == null ? bySignature.size() : slot);
+                writeNumber(out, snapshot.count(run));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the stream doesn't hold a trace, or the trace is
+     *             truncated or corrupt
+     */
+    static InvocationTrace read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an invocation trace");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported trace version " + version);
+            }
+            String mockedType = in.readUTF();
+
+            int methods = (int) readNumber(in, MAX_METHODS, "method count");
+            String[] signatures = new String[methods + 1];
+            Map<String, Long> counts = new LinkedHashMap<String, Long>();
+            for (int slot = 0; slot < methods; slot++) {
+                signatures[slot] = in.readUTF();
+                counts.put(signatures[slot], readNumber(in, Long.MAX_VALUE, "invocation count"));
+            }
+            signatures[methods] = "<unknown>";
+
+            Map<String, Map<String, Integer>> repeats = new HashMap<String, Map<String, Integer>>();
+            int orderFlag = in.readUnsignedByte();
+            if (orderFlag > 1) {
+                throw new IllegalArgumentException("Invalid order flag " + orderFlag);
+            }
+            boolean ordered = orderFlag == 1;
+            if (ordered) {
+                long runs = readNumber(in, Long.MAX_VALUE, "run count");
+                String previous = START;
+                for (long run = 0; run < runs; run++) {
+                    int slot = (int) readNumber(in, methods, "method slot");
+                    int count = (int) readNumber(in, Integer.MAX_VALUE, "run length");
+                    String signature = signatures[slot];
+                    Map<String, Integer> callers = repeats.get(signature);
+                    if (callers == null) {
+                        callers = new HashMap<String, Integer>();
+                        repeats.put(signature, callers);
+                    }
+                    Integer longest = callers.get(previous);
+                    if (longest == null || longest < count) {
+                        callers.put(previous, count);
+                    }
+                    previous = signature;
+                }
+            }
+            return new InvocationTrace(mockedType, counts, repeats, ordered);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated invocation trace", e);
+        }
+    }
+
+    /**
+     * @return name and fully qualified parameter types of the method, so
+     *         overloads taking types of the same simple name get distinct
+     *         slots
+     */
+    static String signature(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(", ");
+            }
+            signature.append(parameterTypes[i].getTypeName());
+        }
+        return signature.append(')').toString();
+    }
+
+    private static void writeNumber(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    // read a number no larger than the maximum, which names it in errors
+    private static long readNumber(DataInputStream in, long max, String name) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0 || value > max) {
+                    throw new IllegalArgumentException("Invalid " + name + " " + Long.toUnsignedString(value)
+                            + ", at most " + max + " expected");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed " + name + " in invocation trace");
+    }
+}
@@ -0,0 +1,11 @@
+package org.saharsh.simplemock;
+
+/**
+ * Same as {@link CaptureProjection}, but captures a single primitive value per
+ * invocation. Values are stored unboxed, in a primitive column.
+ *
+ * @author Saharsh Singh
+ */
+public interface LongCaptureProjection {
+    long project(Object[] args);
+}
@@ -0,0 +1,105 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Method;
+
+/**
+ * Snapshot of what a mock keeps for one of its methods, see
+ * {@link Mock#getDiagnostics()}
+ *
+ * @author Saharsh Singh
+ */
+public final class MethodDiagnostics {
+
+    private final Class<?> mockedType;
+    private final Method method;
+    private final long invocations;
+    private final int capturedRequests;
+    private final int capturedArrays;
+    private final long estimatedBytes;
+    private final long allocatedBytes;
+    private final long measuredInvocations;
+
+    MethodDiagnostics(Class<?> mockedType, Method method, long invocations, int capturedRequests, int capturedArrays,
+            long estimatedBytes, long allocatedBytes, long measuredInvocations) {
+        this.mockedType = mockedType;
+        this.method = method;
+        this.invocations = invocations;
+        this.capturedRequests = capturedRequests;
+        this.capturedArrays = capturedArrays;
+        this.estimatedBytes = estimatedBytes;
+        this.allocatedBytes = allocatedBytes;
+        this.measuredInvocations = measuredInvocations;
+    }
+
+    /** @return type of the mocked instance */
+    public Class<?> getMockedType() {
+        return mockedType;
+    }
+
+    /** @return the mocked method */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return number of invocations since the mock was created or
+     *         {@link Mock#reset() reset}, including those whose captured
+     *         requests have since been cleared
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /** @return number of invocations currently captured */
+    public int getCapturedRequests() {
+        return capturedRequests;
+    }
+
+    /**
+     * @return number of argument arrays kept for the captured requests. Lower
+     *         than {@link #getCapturedRequests()} when capturing into longs or
+     *         interning
+     */
+    public int getCapturedArrays() {
+        return capturedArrays;
+    }
+
+    /**
+     * @return rough estimate of the bytes kept for the captured requests. Only
+     *         counts the arguments themselves, not the objects they refer to
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * @return average bytes allocated per invocation, while allocation
+     *         tracking was enabled using
+     *         {@link SimpleMock#enableAllocationTracking(int)}. 'NaN' if no
+     *         invocation has been measured
+     */
+    public double getAllocatedBytesPerInvocation() {
+        return measuredInvocations == 0 ? Double.NaN : (double) allocatedBytes / measuredInvocations;
+    }
+
+    @Override
+    public String toString() {
+        return mockedType.getName() + '.' + signature(method) + "[invocations=" + invocations + ", captured="
+                + capturedRequests + ", arrays=" + capturedArrays + ", estimatedBytes=" + estimatedBytes
+                + ", allocatedPerInvocation="
+                + (measuredInvocations == 0 ? "n/a" : String.format("%.1f", getAllocatedBytesPerInvocation())) + "]";
+    }
+
+    /** @return method name and simple parameter type names */
+    static String signature(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(", ");
+            }
+            signature.append(parameterTypes[i].getSimpleName());
+        }
+        return signature.append(')').toString();
+    }
+}
@@ -1,11 +1,23 @@
 package org.saharsh.simplemock;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Used as a wrapper for mocked instances. This wrapper can be used to inject
@@ -18,22 +30,34 @@ import java.util.Map;
  */
 public class Mock<T> {
 
-    private final Map<Method, MethodMock> responses = new HashMap<Method, MethodMock>();
-    private final Map<Method, ArrayList<Object[]>> capturedRequests = new HashMap<Method, ArrayList<Object[]>>();
-    private T mocked;
+    private final ConcurrentMap<Method, MethodMock> responses = new ConcurrentHashMap<Method, MethodMock>();
+    private final ConcurrentMap<Method, CaptureLog> capturedRequests = new ConcurrentHashMap<Method, CaptureLog>();
+    private volatile T mocked;
+    private Supplier<T> factory;
     private final Class<T> mockedType;
+    private final Set<MockOption> options;
+    private final boolean callDefaultMethods;
+    private final boolean deepStubs;
+    private final ConcurrentMap<Method, Mock<?>> deepStubMocks = new ConcurrentHashMap<Method, Mock<?>>();
+    private final InvocationOrder order;
 
     /**
      * Shouldn't be a need to instantiate this outside of
-     * {@link SimpleMock#mockType(Class)}
+     * {@link SimpleMock#mockType(Class, MockOption...)}
      *
      * @param mockedType
      *            type of mocked instance wrapped within an instance of this
      *            class. Specified again here since the parameterized <T> type
      *            is erased during compilation
+     * @param options
+     *            options the mock was created with
      */
-    Mock(Class<T> mockedType) {
+    Mock(Class<T> mockedType, Set<MockOption> options) {
         this.mockedType = mockedType;
+        this.options = options;
+        this.callDefaultMethods = options.contains(MockOption.CALL_DEFAULT_METHODS);
+        this.deepStubs = options.contains(MockOption.DEEP_STUBS);
+        this.order = options.contains(MockOption.RECORD_ORDER) ? new InvocationOrder() : null;
     }
 
     /**
@@ -74,9 +98,16 @@ public class Mock<T> {
      * {@link Mock#setReturnValue(Object, String, Class...)} and
      * {@link Mock#setMockImplmentation(MethodMock, String, Class...)} calls on
      * this instance
+     * <p>
+     * Responses can be replaced while the mocked method is being invoked from
+     * other threads. Each invocation uses either the previous or the new
+     * response, and a thread never goes back to an older one.
      *
      * @param mockImpl
-     *            new implementation of the method
+     *            new implementation of the method. 'null' removes the response,
+     *            so the method behaves as if it had never been mocked: it
+     *            returns 'null', a deep stub or the result of a 'default'
+     *            method, depending on the mock's options
      * @param methodName
      *            name of the instance method to be mocked
      * @param argumentTypes
@@ -87,7 +118,112 @@ public class Mock<T> {
      */
     public void setMockImplmentation(MethodMock mockImpl, String methodName, Class<?>... argumentTypes) {
         Method method = findMethod(methodName, argumentTypes);
-        responses.put(method, mockImpl);
+        if (mockImpl == null) {
+            responses.remove(method);
+        } else {
+            responses.put(method, mockImpl);
+        }
+    }
+
+    /**
+     * Use this to specify a sequence of return values for a specific method.
+     * Each invocation returns the next value in the list. Once the list is
+     * exhausted, the last value is returned for all subsequent invocations.
+     * <p>
+     * The position in the sequence is advanced atomically, so the mocked
+     * method can be called from many threads without contention.
+     * <p>
+     * NOTE: Calling this method will overwrite any previous
+     * {@link Mock#setReturnValue(Object, String, Class...)} and
+     * {@link Mock#setMockImplmentation(MethodMock, String, Class...)} calls on
+     * this instance
+     *
+     * @param returnValues
+     *            values to be returned, in order, when the mocked method is
+     *            called. Must contain at least one value
+     * @param methodName
+     *            name of the instance method to be mocked
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if return value for the no-arg method is being
+     *            mocked. Otherwise list the argument types in order they are
+     *            specified for the method of interest.
+     */
+    public void setReturnValues(List<?> returnValues, String methodName, Class<?>... argumentTypes) {
+        setMockImplmentation(ScriptedAnswers.sequential(returnValues), methodName, argumentTypes);
+    }
+
+    /**
+     * Same as {@link Mock#setReturnValues(List, String, Class...)}, except
+     * that once the list is exhausted, values are returned again starting from
+     * the first one
+     *
+     * @param returnValues
+     *            values to be returned, in order, when the mocked method is
+     *            called. Must contain at least one value
+     * @param methodName
+     *            name of the instance method to be mocked
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if return value for the no-arg method is being
+     *            mocked. Otherwise list the argument types in order they are
+     *            specified for the method of interest.
+     */
+    public void setCyclicReturnValues(List<?> returnValues, String methodName, Class<?>... argumentTypes) {
+        setMockImplmentation(ScriptedAnswers.cyclic(returnValues), methodName, argumentTypes);
+    }
+
+    /**
+     * Same as {@link Mock#setReturnValues(List, String, Class...)}, except
+     * that values are pulled from the iterator one invocation at a time. Use
+     * this for very large scripts (see {@link SimpleMock#readValues(File)})
+     * that shouldn't be loaded onto the heap up front. Once the iterator is
+     * exhausted, the last value pulled is returned for all subsequent
+     * invocations.
+     *
+     * @param returnValues
+     *            source of values to be returned, in order, when the mocked
+     *            method is called
+     * @param methodName
+     *            name of the instance method to be mocked
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if return value for the no-arg method is being
+     *            mocked. Otherwise list the argument types in order they are
+     *            specified for the method of interest.
+     */
+    public void setReturnValues(Iterator<?> returnValues, String methodName, Class<?>... argumentTypes) {
+        setMockImplmentation(ScriptedAnswers.lazy(returnValues), methodName, argumentTypes);
+    }
+
+    /**
+     * Use this with mocks created using {@link MockOption#DEEP_STUBS} to get
+     * hold of the mock returned by a method, for instance to set responses on
+     * it before it's first used, or to verify its invocations afterwards. The
+     * child mock is created if the method hasn't been invoked yet.
+     *
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return mock returned by the specified method when no response is set
+     *         for it
+     */
+    public Mock<?> getDeepStub(String methodName, Class<?>... argumentTypes) {
+        Method method = findMethod(methodName, argumentTypes);
+        if (!deepStubs) {
+            throw MockException.wrap(new IllegalStateException(
+                    mockedType + " wasn't mocked with " + MockOption.DEEP_STUBS));
+        }
+        Mock<?> deepStub = deepStub(method);
+        if (deepStub == null) {
+            throw MockException.wrap(new IllegalArgumentException(
+                    "Return type of " + method + " can't be mocked"));
+        }
+        return deepStub;
     }
 
     /**
@@ -103,11 +239,11 @@ public class Mock<T> {
      */
     public Object[] getLastRequest(String methodName, Class<?>... argumentTypes) {
         Method method = findMethod(methodName, argumentTypes);
-        List<Object[]> requests = capturedRequests.get(method);
-        if (requests == null || requests.size() < 1) {
+        CaptureLog requests = capturedRequests.get(method);
+        if (requests == null) {
             return null;
         }
-        return requests.get(requests.size() - 1);
+        return requests.last();
     }
 
     /**
@@ -119,16 +255,261 @@ public class Mock<T> {
      *            Otherwise list the argument types in order they are specified
      *            for the method of interest.
      * @return the arguments passed in during each invocation of the specified
-     *         method via the mocked instance
+     *         method via the mocked instance. This is a copy that won't reflect
+     *         later invocations; see
+     *         {@link Mock#getCapturedRequestsView(String, Class...)} for a view
+     *         that doesn't copy anything
      */
-    @SuppressWarnings("unchecked")
     public List<Object[]> getAllCapturedRequests(String methodName, Class<?>... argumentTypes) {
         Method method = findMethod(methodName, argumentTypes);
-        ArrayList<Object[]> requests = capturedRequests.get(method);
+        CaptureLog requests = capturedRequests.get(method);
         if (requests == null) {
             return new ArrayList<Object[]>();
         }
-        return (List<Object[]>) requests.clone();
+        return requests.copy();
+    }
+
+    /**
+     * Same as {@link Mock#getAllCapturedRequests(String, Class...)}, except
+     * that nothing is copied. The returned list is read-only and live: it
+     * grows as the method is invoked and empties when captured requests are
+     * cleared. It can safely be read while the mocked method is being invoked
+     * from other threads.
+     *
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return live, read-only view of the arguments passed in during each
+     *         invocation of the specified method
+     */
+    public List<Object[]> getCapturedRequestsView(String methodName, Class<?>... argumentTypes) {
+        return captureLog(findMethod(methodName, argumentTypes)).view();
+    }
+
+    /**
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return stream over the arguments passed in during each invocation of
+     *         the specified method, up to the time of this call. Nothing is
+     *         copied to create the stream.
+     */
+    public Stream<Object[]> streamCapturedRequests(String methodName, Class<?>... argumentTypes) {
+        return StreamSupport.stream(captureLog(findMethod(methodName, argumentTypes)).spliterator(), false);
+    }
+
+    /**
+     * @param matcher
+     *            selects the requests to count
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return number of captured requests for the specified method whose
+     *         arguments are accepted by the matcher
+     */
+    public int countCapturedRequests(ArgumentMatcher matcher, String methodName, Class<?>... argumentTypes) {
+        Method method = findMethod(methodName, argumentTypes);
+        CaptureLog requests = capturedRequests.get(method);
+        if (requests == null) {
+            return 0;
+        }
+        return requests.count(matcher);
+    }
+
+    /**
+     * Use this to poll requests captured for a method incrementally. Each call
+     * to the cursor only visits requests captured since the previous read.
+     *
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return new cursor positioned at the first captured request
+     */
+    public CaptureCursor newCaptureCursor(String methodName, Class<?>... argumentTypes) {
+        return captureLog(findMethod(methodName, argumentTypes)).cursor();
+    }
+
+    /**
+     * Blocks until the specified method has been invoked at least the given
+     * number of times, counting invocations captured before this call. Use
+     * this to verify asynchronous code instead of polling. The waiting thread
+     * is woken up by the invocations themselves.
+     *
+     * @param count
+     *            number of invocations to wait for
+     * @param timeout
+     *            maximum time to wait
+     * @param unit
+     *            unit of the timeout
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return 'true' if the method was invoked enough times, 'false' if the
+     *         timeout elapsed first
+     */
+    public boolean awaitInvocations(int count, long timeout, TimeUnit unit, String methodName,
+            Class<?>... argumentTypes) {
+        CaptureLog requests = captureLog(findMethod(methodName, argumentTypes));
+        try {
+            return requests.awaitSize(count, unit.toNanos(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw MockException.wrap(e);
+        }
+    }
+
+    /**
+     * Blocks until the specified method has been invoked with arguments
+     * accepted by the matcher, considering invocations captured before this
+     * call too. The waiting thread is woken up by the invocations themselves.
+     *
+     * @param matcher
+     *            selects the invocation to wait for
+     * @param timeout
+     *            maximum time to wait
+     * @param unit
+     *            unit of the timeout
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return arguments of the first matching invocation. 'null' if the
+     *         timeout elapsed first
+     */
+    public Object[] awaitInvocation(ArgumentMatcher matcher, long timeout, TimeUnit unit, String methodName,
+            Class<?>... argumentTypes) {
+        CaptureLog requests = captureLog(findMethod(methodName, argumentTypes));
+        try {
+            return requests.awaitMatch(matcher, unit.toNanos(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw MockException.wrap(e);
+        }
+    }
+
+    /**
+     * Use this to capture only part of the arguments passed into a method. The
+     * projection runs during each invocation and only the values it returns
+     * are captured, so large arguments aren't kept alive by this mock. All
+     * methods returning captured requests return the projected values instead
+     * of the original arguments.
+     * <p>
+     * NOTE: Requests previously captured for the method are cleared
+     *
+     * @param projection
+     *            extracts the values to capture. 'null' to go back to
+     *            capturing all arguments
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     */
+    public void setCaptureProjection(CaptureProjection projection, String methodName, Class<?>... argumentTypes) {
+        captureLog(findMethod(methodName, argumentTypes)).project(projection);
+    }
+
+    /**
+     * Use this to capture a method that is mostly invoked with the same few
+     * arguments many times over. Each distinct set of arguments, compared by
+     * {@link Object#equals(Object)} and by content for arrays, is kept once,
+     * and invocations are recorded as runs of repeated argument sets. Memory
+     * then grows with the number of distinct invocations rather than the
+     * number of invocations. All methods returning captured requests still
+     * return the full history, in order, with repeated invocations sharing the
+     * same array.
+     * <p>
+     * Use {@link Mock#setCaptureProjection(CaptureProjection, String, Class...)}
+     * with 'null' to go back to capturing every invocation separately.
+     * <p>
+     * NOTE: Requests previously captured for the method are cleared. Arguments
+     * mutated after the invocation may not be recognized as repeats.
+     *
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     */
+    public void internCapturedRequests(String methodName, Class<?>... argumentTypes) {
+        captureLog(findMethod(methodName, argumentTypes)).intern();
+    }
+
+    /**
+     * Same as {@link Mock#setCaptureProjection(CaptureProjection, String, Class...)},
+     * except that a single primitive value is captured per invocation and
+     * stored unboxed. Use {@link Mock#getCapturedLongs(String, Class...)} to
+     * read the values back without boxing them. Other methods returning
+     * captured requests return each value wrapped in a single element array.
+     * <p>
+     * NOTE: Requests previously captured for the method are cleared
+     *
+     * @param projection
+     *            extracts the value to capture
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     */
+    public void setLongCaptureProjection(LongCaptureProjection projection, String methodName,
+            Class<?>... argumentTypes) {
+        if (projection == null) {
+            throw MockException.wrap(new IllegalArgumentException("Projection cannot be null"));
+        }
+        captureLog(findMethod(methodName, argumentTypes)).projectLongs(projection);
+    }
+
+    /**
+     * @param methodName
+     *            name of the instance method
+     * @param argumentTypes
+     *            leave this blank if only one method by the specified name
+     *            exists, or if the method of interest is a 'no-arg method'.
+     *            Otherwise list the argument types in order they are specified
+     *            for the method of interest.
+     * @return the values captured for each invocation of the specified method
+     *         by the projection set using
+     *         {@link Mock#setLongCaptureProjection(LongCaptureProjection, String, Class...)}
+     */
+    public long[] getCapturedLongs(String methodName, Class<?>... argumentTypes) {
+        Method method = findMethod(methodName, argumentTypes);
+        CaptureLog requests = capturedRequests.get(method);
+        long[] values = requests == null ? null : requests.longs();
+        if (values == null) {
+            throw MockException.wrap(new IllegalStateException(
+                    "No long capture projection set for " + mockedType + "." + methodName));
+        }
+        return values;
     }
 
     /**
@@ -144,7 +525,7 @@ public class Mock<T> {
      */
     public void clearCapturedRequests(String methodName, Class<?>... argumentTypes) {
         Method method = findMethod(methodName, argumentTypes);
-        ArrayList<Object[]> requests = capturedRequests.get(method);
+        CaptureLog requests = capturedRequests.get(method);
         if (requests != null) {
             requests.clear();
         }
@@ -152,55 +533,232 @@ public class Mock<T> {
 
     /** Clear all previously captured requests */
     public void clearCapturedRequests() {
-        capturedRequests.clear();
+        for (CaptureLog requests : capturedRequests.values()) {
+            requests.clear();
+        }
+    }
+
+    /**
+     * Use this to find out what this mock keeps on the heap. Reports, for each
+     * method invoked so far, the number of invocations, the number of
+     * captured requests and argument arrays, a rough estimate of the bytes
+     * they retain and, while {@link SimpleMock#enableAllocationTracking(int)}
+     * is in effect, the bytes allocated per invocation. Use
+     * {@link SimpleMock#dumpMockDiagnostics(int)} to compare all live mocks.
+     * <p>
+     * NOTE: Estimating retained bytes walks all captured requests
+     *
+     * @return snapshot of this mock's diagnostics
+     */
+    public MockDiagnostics getDiagnostics() {
+        List<MethodDiagnostics> methods = new ArrayList<MethodDiagnostics>(capturedRequests.size());
+        for (Map.Entry<Method, CaptureLog> entry : capturedRequests.entrySet()) {
+            // logs outlive reset(), and are created for views before any invocation
+            if (entry.getValue().invocations() > 0) {
+                methods.add(entry.getValue().diagnostics(mockedType, entry.getKey()));
+            }
+        }
+        return new MockDiagnostics(mockedType, methods);
+    }
+
+    /**
+     * Write a compact binary trace of the invocations of this mock: the number
+     * of times each method was invoked and, for mocks created with
+     * {@link MockOption#RECORD_ORDER}, the order of the invocations as runs of
+     * consecutive calls to the same method. The trace is streamed straight to
+     * the output, and can be compared with a trace of another run using
+     * {@link TraceDiff}. Counts, like the order, cover every invocation since
+     * the mock was created or {@link #reset() reset}, whether or not its
+     * captured requests have been cleared.
+     *
+     * @param out
+     *            stream to write to. Flushed, but not closed
+     */
+    public void writeTrace(OutputStream out) {
+        try {
+            InvocationTrace.write(out, mockedType, capturedRequests, order);
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    /**
+     * Return the mock to the state it was created in: remove all return values
+     * and mock implementations, captured requests and deep stubs. The mocked
+     * instance stays the same, and so do capture projections and interning.
+     * Live views, cursors and awaits of captured requests keep working.
+     */
+    public void reset() {
+        responses.clear();
+        for (CaptureLog requests : capturedRequests.values()) {
+            requests.reset();
+        }
+        deepStubMocks.clear();
+        if (order != null) {
+            order.clear();
+        }
+    }
+
+    /**
+     * @return 'true' if no capture projection or interning is in use for any
+     *         method, so a reset mock is indistinguishable from a new one
+     */
+    boolean capturesByDefault() {
+        for (CaptureLog requests : capturedRequests.values()) {
+            if (!requests.capturesByDefault()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * Used by proxies to invoke methods on the mocked instance
      *
+     * @param mocked
+     *            the mocked instance the method was invoked on
      * @param method
      *            method to invoke
      * @param args
      *            arguments to pass into the method during invocation
      * @return result of invocation. 'null' if a return value hasn't been set
      *         using {@link Mock#setReturnValue(Object, String, Class...)}
+     * @throws Throwable
+     *             anything thrown by the real implementation of a 'default'
+     *             method, see {@link MockOption#CALL_DEFAULT_METHODS}
      */
-    Object runMethod(Method method, Object[] args) {
+    Object runMethod(Object mocked, Method method, Object[] args) throws Throwable {
+        InvocationHooks hooks = InvocationHooks.active;
+        if (hooks != null) {
+            return hooks.invoke(this, mocked, method, args);
+        }
+        return invoke(mocked, method, args);
+    }
+
+    // capture the request and produce the response
+    Object invoke(Object mocked, Method method, Object[] args) throws Throwable {
 
         // capture request
-        ArrayList<Object[]> requests;
-        synchronized (capturedRequests) {
-            requests = capturedRequests.get(method);
-            if (requests == null) {
-                requests = new ArrayList<Object[]>();
-                capturedRequests.put(method, requests);
-            }
+        captureLog(method).add(args);
+        if (order != null) {
+            order.add(method);
         }
-        requests.add(args);
 
         // return response
         MethodMock mockImpl = responses.get(method);
         if (mockImpl == null) {
+            if (callDefaultMethods && method.isDefault() && DefaultMethods.isCallable(mocked, method)) {
+                return DefaultMethods.invoke(mocked, method, args);
+            }
+            if (deepStubs) {
+                Mock<?> deepStub = deepStub(method);
+                return deepStub == null ? null : deepStub.getMocked();
+            }
             return null;
         }
         return mockImpl.runMockImplementation(args);
     }
 
-    /** @return the mocked instance */
+    /** Record the bytes allocated by one measured invocation of the method */
+    void allocated(Method method, long bytes) {
+        captureLog(method).allocated(bytes);
+    }
+
+    /** @return 'true' if a response has been set for the method */
+    boolean isStubbed(Method method) {
+        return responses.containsKey(method);
+    }
+
+    /** @return type of the mocked instance */
+    Class<T> getMockedType() {
+        return mockedType;
+    }
+
+    /**
+     * @return the mocked instance. With {@link MockOption#LAZY}, it's created
+     *         by the first call, and every call returns the same instance
+     */
     public T getMocked() {
-        return mocked;
+        T instance = mocked;
+        if (instance == null) {
+            synchronized (this) {
+                instance = mocked;
+                if (instance == null) {
+                    instance = factory.get();
+                    mocked = instance;
+
+                    // let go of everything only needed to create it
+                    factory = null;
+                }
+            }
+        }
+        return instance;
     }
 
     /**
-     * @param mocked
-     *            the mocked instance
+     * @param factory
+     *            creates the mocked instance, once, on the first call to
+     *            {@link #getMocked()}
      */
-    void setMocked(T mocked) {
-        this.mocked = mocked;
+    void setFactory(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    // child mock for the method's return type. 'null' if it can't be mocked
+    private Mock<?> deepStub(Method method) {
+        Mock<?> deepStub = deepStubMocks.get(method);
+        if (deepStub == null) {
+            Class<?> returnType = method.getReturnType();
+            if (!isMockable(returnType, options.contains(MockOption.SKIP_CONSTRUCTOR))) {
+                return null;
+            }
+            Mock<?> created = SimpleMock.mockType(returnType, options.toArray(new MockOption[0]));
+            deepStub = deepStubMocks.putIfAbsent(method, created);
+            if (deepStub == null) {
+                deepStub = created;
+            }
+        }
+        return deepStub;
+    }
+
+    private static boolean isMockable(Class<?> type, boolean skipConstructor) {
+        if (type.isPrimitive() || type.isArray() || type == Object.class || Modifier.isFinal(type.getModifiers())) {
+            return false;
+        }
+        if (type.isInterface()) {
+            return true;
+        }
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (!Modifier.isPrivate(constructor.getModifiers())
+                    && (skipConstructor || constructor.getParameterCount() == 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CaptureLog captureLog(Method method) {
+        CaptureLog requests = capturedRequests.get(method);
+        if (requests == null) {
+            CaptureLog created = new CaptureLog();
+            requests = capturedRequests.putIfAbsent(method, created);
+            if (requests == null) {
+                requests = created;
+            }
+        }
+        return requests;
     }
 
     // find method from mocked type given name and argument types
     private Method findMethod(final String methodName, final Class<?>... argumentTypes) {
+        if (mockedType.isInterface()) {
+            // Java proxies always dispatch these as the methods declared by
+            // Object, even if the interface redeclares them
+            Method objectMethod = ObjectMethods.find(methodName, argumentTypes);
+            if (objectMethod != null) {
+                return objectMethod;
+            }
+        }
         try {
             return findMethodInClassHierarchy(mockedType, methodName, argumentTypes);
         } catch (NoSuchMethodException e) {
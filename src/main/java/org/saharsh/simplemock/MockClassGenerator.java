@@ -0,0 +1,251 @@
+package org.saharsh.simplemock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import net.sf.cglib.core.DefaultGeneratorStrategy;
+import net.sf.cglib.core.NamingPolicy;
+import net.sf.cglib.core.Predicate;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+/**
+ * Generates mock classes ahead of time, so
+ * {@link SimpleMock#mockType(Class, MockOption...)} can load them instead of
+ * generating them at runtime. Used by the 'simple-mock-maven-plugin', which
+ * writes them to the test output directory.
+ * <p>
+ * Only concrete classes loaded from the class path are generated ahead of
+ * time. Interfaces are mocked using Java proxies, which are created by the JVM
+ * itself.
+ * <p>
+ * The index records a fingerprint of the methods and constructors each mock
+ * class was generated from. If the mocked type changes afterwards, e.g. gains
+ * a method that the stale mock class wouldn't override, the fingerprints no
+ * longer match and the mock class is generated at runtime instead.
+ * <p>
+ * NOTE: Generated classes depend on the version of 'Code Generation Library'
+ * they were generated with, so the generator and the tests must use the same
+ * version of this library.
+ *
+ * @author Saharsh Singh
+ */
+public final class MockClassGenerator {
+
+    /** Resource listing the mock class generated for each mocked type */
+    public static final String INDEX_RESOURCE = "META-INF/simple-mock/mock-classes.index";
+
+    private static final String CLASS_NAME_SUFFIX = "$$SimpleMock";
+
+    // separates the mock class name and the fingerprint in index entries
+    static final char FINGERPRINT_SEPARATOR = ';';
+
+    private final File outputDirectory;
+    private final Properties index = new Properties();
+
+    /**
+     * @param outputDirectory
+     *            root of the class path directory that generated classes and
+     *            the index are written to. Entries of an existing index are
+     *            kept.
+     */
+    public MockClassGenerator(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        File indexFile = new File(outputDirectory, INDEX_RESOURCE);
+        if (indexFile.isFile()) {
+            try {
+                InputStream in = new FileInputStream(indexFile);
+                try {
+                    index.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw MockException.wrap(e);
+            }
+        }
+    }
+
+    /**
+     * @param toMock
+     *            type that will be mocked
+     * @return 'true' if a mock class can be generated ahead of time for the
+     *         type
+     */
+    public static boolean canGenerate(Class<?> toMock) {
+        // JDK classes are skipped, their mocks can't be loaded from the class path
+        return !toMock.isInterface() && !toMock.isPrimitive() && !toMock.isArray()
+                && !Modifier.isFinal(toMock.getModifiers()) && toMock.getClassLoader() != null;
+    }
+
+    /**
+     * Generate the mock class for a type and add it to the index. Call
+     * {@link #writeIndex()} once all types have been generated.
+     *
+     * @param toMock
+     *            concrete class that will be mocked
+     * @return name of the generated class
+     */
+    public String generate(Class<?> toMock) {
+        if (!canGenerate(toMock)) {
+            throw MockException.wrap(new IllegalArgumentException(toMock + " can't be generated ahead of time"));
+        }
+
+        final String className = toMock.getName() + CLASS_NAME_SUFFIX;
+        byte[] bytes = bytecode(toMock, className);
+        File classFile = new File(outputDirectory, className.replace('.', File.separatorChar) + ".class");
+        try {
+            classFile.getParentFile().mkdirs();
+            write(classFile, bytes);
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+        index.setProperty(toMock.getName(), className + FINGERPRINT_SEPARATOR + fingerprint(toMock));
+        return className;
+    }
+
+    /** Write the index of all generated mock classes */
+    public void writeIndex() {
+        File indexFile = new File(outputDirectory, INDEX_RESOURCE);
+        indexFile.getParentFile().mkdirs();
+        try {
+            OutputStream out = new FileOutputStream(indexFile);
+            try {
+                index.store(out, "Mock classes generated by " + MockClassGenerator.class.getName());
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    /**
+     * @return digest of the signatures of every method and constructor a mock
+     *         class of the type overrides or calls, i.e. the non-private,
+     *         non-static ones of the type, its super classes and interfaces
+     */
+    static String fingerprint(Class<?> toMock) {
+        Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+        for (Class<?> type = toMock; type != null; type = type.getSuperclass()) {
+            addWithInterfaces(type, types);
+        }
+
+        List<String> signatures = new ArrayList<String>();
+        for (Constructor<?> constructor : toMock.getDeclaredConstructors()) {
+            addSignature(constructor, "<init>", void.class, signatures);
+        }
+        for (Class<?> type : types) {
+            for (Method method : type.getDeclaredMethods()) {
+                addSignature(method, type.getName() + '.' + method.getName(), method.getReturnType(), signatures);
+            }
+        }
+        Collections.sort(signatures);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String signature : signatures) {
+                digest.update(signature.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    private static void addWithInterfaces(Class<?> type, Set<Class<?>> types) {
+        if (types.add(type)) {
+            for (Class<?> implemented : type.getInterfaces()) {
+                addWithInterfaces(implemented, types);
+            }
+        }
+    }
+
+    private static void addSignature(Executable executable, String name, Class<?> returnType,
+            List<String> signatures) {
+        int modifiers = executable.getModifiers();
+        if (Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers)) {
+            return;
+        }
+        StringBuilder signature = new StringBuilder()
+                .append(Modifier.toString(modifiers & (Modifier.PUBLIC | Modifier.PROTECTED | Modifier.FINAL
+                        | Modifier.ABSTRACT)))
+                .append(' ').append(returnType.getName()).append(' ').append(name).append('(');
+        for (Class<?> parameterType : executable.getParameterTypes()) {
+            signature.append(parameterType.getName()).append(',');
+        }
+        signatures.add(signature.append(')').toString());
+    }
+
+    // same class 'MockClasses' generates at runtime, under a predictable name
+    private static byte[] bytecode(Class<?> toMock, final String className) {
+        final CapturingStrategy strategy = new CapturingStrategy();
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(toMock);
+        enhancer.setCallbackType(MethodInterceptor.class);
+        enhancer.setUseCache(false);
+        enhancer.setAttemptLoad(false);
+        enhancer.setStrategy(strategy);
+        enhancer.setNamingPolicy(new NamingPolicy() {
+            @Override
+            public String getClassName(String prefix, String source, Object key, Predicate names) {
+                return className;
+            }
+        });
+        try {
+            enhancer.createClass();
+        } catch (RuntimeException e) {
+            if (strategy.bytes == null) {
+                throw e;
+            }
+        }
+        return strategy.bytes;
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Keeps the generated bytecode and stops 'Code Generation Library' from
+     * defining the class, which isn't needed here and would require access to
+     * the target class loader
+     */
+    private static final class CapturingStrategy extends DefaultGeneratorStrategy {
+
+        private byte[] bytes;
+
+        @Override
+        protected byte[] transform(byte[] b) {
+            bytes = b;
+            throw new IllegalStateException("Bytecode captured, class intentionally not defined");
+        }
+    }
+}
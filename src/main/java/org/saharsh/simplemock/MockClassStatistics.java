@@ -0,0 +1,54 @@
+package org.saharsh.simplemock;
+
+/**
+ * Snapshot of the classes generated to mock types, see
+ * {@link SimpleMock#getMockClassStatistics()}
+ *
+ * @author Saharsh Singh
+ */
+public final class MockClassStatistics {
+
+    private final long generated;
+    private final long pregenerated;
+    private final int live;
+    private final long evicted;
+
+    MockClassStatistics(long generated, long pregenerated, int live, long evicted) {
+        this.generated = generated;
+        this.pregenerated = pregenerated;
+        this.live = live;
+        this.evicted = evicted;
+    }
+
+    /** @return number of mock classes generated at runtime so far */
+    public long getGenerated() {
+        return generated;
+    }
+
+    /**
+     * @return number of mock classes generated ahead of time (see
+     *         {@link MockClassGenerator}) that have been loaded so far
+     */
+    public long getPregenerated() {
+        return pregenerated;
+    }
+
+    /** @return number of mock classes currently cached for reuse */
+    public int getLive() {
+        return live;
+    }
+
+    /**
+     * @return number of mock classes removed from the cache so far, either
+     *         explicitly or because their class loader was garbage collected
+     */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    @Override
+    public String toString() {
+        return "MockClassStatistics[generated=" + generated + ", pregenerated=" + pregenerated + ", live=" + live
+                + ", evicted=" + evicted + "]";
+    }
+}
@@ -0,0 +1,203 @@
+package org.saharsh.simplemock;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+/**
+ * Creates and caches the classes used to mock types: Java proxy classes for
+ * interfaces, and 'Code Generation Library' subclasses for concrete classes.
+ * Subclasses generated ahead of time by {@link MockClassGenerator} are used
+ * when present.
+ * <p>
+ * Mock classes are cached on the mocked type itself, so a cached class never
+ * keeps its class loader alive: once the loader of a mocked type is garbage
+ * collected, its mock classes are unloaded with it. While the loader is alive,
+ * each mock class is generated once and reused by every mock of the type.
+ *
+ * @author Saharsh Singh
+ */
+final class MockClasses {
+
+    private static final ClassValue<MockClass> CACHE = new ClassValue<MockClass>() {
+        @Override
+        protected MockClass computeValue(Class<?> toMock) {
+            return resolve(toMock);
+        }
+    };
+
+    // one weak reference per cached class, to notice when it's unloaded
+    private static final Set<CachedClass> LIVE = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<Class<?>> UNLOADED = new ReferenceQueue<Class<?>>();
+
+    private static final AtomicLong GENERATED = new AtomicLong();
+    private static final AtomicLong PREGENERATED = new AtomicLong();
+    private static final AtomicLong EVICTED = new AtomicLong();
+
+    // static access only
+    private MockClasses() {
+    }
+
+    /** @return new proxy for the interface that dispatches to the handler */
+    static Object newInterfaceMock(Class<?> toMock, InvocationHandler handler) {
+        try {
+            return CACHE.get(toMock).constructor().newInstance(handler);
+        } catch (Exception e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    /** @return new subclass instance that dispatches to the handler */
+    static Object newClassMock(Class<?> toMock, MethodInterceptor handler, boolean skipConstructor) {
+        MockClass mockClass = CACHE.get(toMock);
+        if (skipConstructor && Instantiator.isAvailable()) {
+            Factory instance = (Factory) Instantiator.allocate(mockClass.type);
+            instance.setCallback(0, handler);
+            return instance;
+        }
+
+        // callbacks are picked up from the current thread during construction
+        Constructor<?> constructor = mockClass.constructor();
+        Enhancer.registerCallbacks(mockClass.type, new Callback[] { handler });
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw MockException.wrap(e);
+        } finally {
+            Enhancer.registerCallbacks(mockClass.type, null);
+        }
+    }
+
+    /**
+     * Remove mock classes of types defined by the class loader from the cache.
+     * They are generated again if the types are mocked again.
+     */
+    static void evict(ClassLoader loader) {
+        expunge();
+        for (CachedClass cached : LIVE) {
+            Class<?> mockedType = cached.mockedType.get();
+            if (mockedType != null && mockedType.getClassLoader() == loader) {
+                evict(cached, mockedType);
+            }
+        }
+    }
+
+    /** Remove all mock classes from the cache */
+    static void evictAll() {
+        expunge();
+        for (CachedClass cached : LIVE) {
+            Class<?> mockedType = cached.mockedType.get();
+            if (mockedType != null) {
+                evict(cached, mockedType);
+            }
+        }
+    }
+
+    static MockClassStatistics statistics() {
+        expunge();
+        return new MockClassStatistics(GENERATED.get(), PREGENERATED.get(), LIVE.size(), EVICTED.get());
+    }
+
+    private static void evict(CachedClass cached, Class<?> mockedType) {
+        if (LIVE.remove(cached)) {
+            CACHE.remove(mockedType);
+            EVICTED.incrementAndGet();
+        }
+    }
+
+    // account for mock classes unloaded along with their class loader
+    private static void expunge() {
+        Object unloaded;
+        while ((unloaded = UNLOADED.poll()) != null) {
+            if (LIVE.remove(unloaded)) {
+                EVICTED.incrementAndGet();
+            }
+        }
+    }
+
+    private static MockClass resolve(Class<?> toMock) {
+        expunge();
+        MockClass mockClass;
+        if (toMock.isInterface()) {
+            mockClass = new MockClass(proxyClass(toMock), InvocationHandler.class);
+            GENERATED.incrementAndGet();
+        } else {
+            Class<?> pregenerated = PregeneratedMocks.find(toMock);
+            if (pregenerated != null) {
+                mockClass = new MockClass(pregenerated);
+                PREGENERATED.incrementAndGet();
+            } else {
+                mockClass = new MockClass(subclass(toMock));
+                GENERATED.incrementAndGet();
+            }
+        }
+        LIVE.add(new CachedClass(mockClass.type, toMock));
+        return mockClass;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Class<?> proxyClass(Class<?> toMock) {
+        return Proxy.getProxyClass(toMock.getClassLoader(), toMock);
+    }
+
+    private static Class<?> subclass(Class<?> toMock) {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(toMock);
+        enhancer.setCallbackType(MethodInterceptor.class);
+
+        // cached here instead, so there is one place to evict from
+        enhancer.setUseCache(false);
+        return enhancer.createClass();
+    }
+
+    /** A mock class, along with the constructor used to instantiate it */
+    private static final class MockClass {
+
+        final Class<?> type;
+        private final Constructor<?> constructor;
+        private final NoSuchMethodException missing;
+
+        MockClass(Class<?> type, Class<?>... parameterTypes) {
+            this.type = type;
+            Constructor<?> constructor = null;
+            NoSuchMethodException missing = null;
+            try {
+                constructor = type.getDeclaredConstructor(parameterTypes);
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                // still instantiable with MockOption.SKIP_CONSTRUCTOR
+                missing = e;
+            }
+            this.constructor = constructor;
+            this.missing = missing;
+        }
+
+        Constructor<?> constructor() {
+            if (constructor == null) {
+                throw MockException.wrap(missing);
+            }
+            return constructor;
+        }
+    }
+
+    /** Tracks a cached mock class without keeping it, or its loader, alive */
+    private static final class CachedClass extends WeakReference<Class<?>> {
+
+        final WeakReference<Class<?>> mockedType;
+
+        CachedClass(Class<?> mockClass, Class<?> mockedType) {
+            super(mockClass, UNLOADED);
+            this.mockedType = new WeakReference<Class<?>>(mockedType);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.saharsh.simplemock;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of what a mock keeps, per method, see
+ * {@link Mock#getDiagnostics()}
+ *
+ * @author Saharsh Singh
+ */
+public final class MockDiagnostics {
+
+    private final Class<?> mockedType;
+    private final List<MethodDiagnostics> methods;
+
+    MockDiagnostics(Class<?> mockedType, List<MethodDiagnostics> methods) {
+        this.mockedType = mockedType;
+        this.methods = Collections.unmodifiableList(methods);
+    }
+
+    /** @return type of the mocked instance */
+    public Class<?> getMockedType() {
+        return mockedType;
+    }
+
+    /** @return diagnostics of each method invoked on the mock */
+    public List<MethodDiagnostics> getMethods() {
+        return methods;
+    }
+
+    /** @return invocations of all methods, see {@link MethodDiagnostics#getInvocations()} */
+    public long getInvocations() {
+        long invocations = 0;
+        for (MethodDiagnostics method : methods) {
+            invocations += method.getInvocations();
+        }
+        return invocations;
+    }
+
+    /** @return bytes kept for all methods, see {@link MethodDiagnostics#getEstimatedBytes()} */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (MethodDiagnostics method : methods) {
+            bytes += method.getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "MockDiagnostics[" + mockedType.getName() + ", invocations=" + getInvocations() + ", estimatedBytes="
+                + getEstimatedBytes() + ", methods=" + methods + "]";
+    }
+}
@@ -0,0 +1,33 @@
+package org.saharsh.simplemock;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted for invocations of mocked methods, once
+ * enabled using {@link SimpleMock#enableFlightRecorderEvents(int)}. Duration
+ * and thread are recorded by Flight Recorder itself.
+ *
+ * @author Saharsh Singh
+ */
+@Name("org.saharsh.simplemock.MockInvocation")
+@Label("Mock Invocation")
+@Category("SimpleMock")
+@Description("Invocation of a method on a mocked instance")
+@StackTrace(false)
+class MockInvocationEvent extends Event {
+
+    @Label("Mocked Type")
+    Class<?> mockedType;
+
+    @Label("Method")
+    String method;
+
+    @Label("Stubbed")
+    @Description("Whether a return value or mock implementation was set for the method")
+    boolean stubbed;
+}
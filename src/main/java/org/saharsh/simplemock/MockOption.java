@@ -0,0 +1,69 @@
+package org.saharsh.simplemock;
+
+/**
+ * Options that change how {@link SimpleMock#mockType(Class, MockOption...)}
+ * creates a mock
+ *
+ * @author Saharsh Singh
+ */
+public enum MockOption {
+
+    /**
+     * Run the real implementation of interface 'default' methods that don't
+     * have a response set, instead of returning 'null'. Invocations are still
+     * captured. Only the abstract methods the default methods rely on need to
+     * be mocked.
+     * <p>
+     * NOTE: Default methods of interfaces in packages that aren't open to
+     * Simple Mock, like the JDK's, are only run if the mocked type extends the
+     * interface from a package that is, e.g. a mocked
+     * {@code interface Repo extends Comparator<String>}. Otherwise they're left
+     * unstubbed, as without this option
+     */
+    CALL_DEFAULT_METHODS,
+
+    /**
+     * Methods that don't have a response set and return a type that can be
+     * mocked return a mock of that type instead of 'null'. The child mock is
+     * created the first time it's needed, cached for the method, and created
+     * with the same options as its parent. Use
+     * {@link Mock#getDeepStub(String, Class...)} to set responses on it or to
+     * verify its invocations.
+     */
+    DEEP_STUBS,
+
+    /**
+     * Create class mocks without running any constructor of the mocked class.
+     * Constructors that open resources, build caches or start threads are
+     * skipped entirely, and classes without a 'no-arg' constructor can be
+     * mocked too, as long as they have a constructor visible to subclasses.
+     * Fields of the mocked instance are left at their default values. Has no
+     * effect on interface mocks.
+     * <p>
+     * NOTE: Relies on 'sun.reflect.ReflectionFactory' from the
+     * 'jdk.unsupported' module. On a JVM without it, the 'no-arg' constructor
+     * is run as if this option wasn't given.
+     */
+    SKIP_CONSTRUCTOR,
+
+    /**
+     * Don't generate the mock class or create the mocked instance until
+     * {@link Mock#getMocked()} is first called. Responses, capture settings
+     * and verifications can all be used before then, so a mock that a test
+     * configures but never hands out costs little more than its container.
+     * Creating the instance is thread safe and happens once. Errors creating
+     * it, e.g. a class without a suitable constructor, surface from
+     * {@link Mock#getMocked()} instead of
+     * {@link SimpleMock#mockType(Class, MockOption...)}.
+     */
+    LAZY,
+
+    /**
+     * Record the order in which the methods of the mock are invoked, across
+     * methods, so {@link Mock#writeTrace(java.io.OutputStream)} can include
+     * it. Consecutive invocations of the same method are recorded as a single
+     * run, but every invocation briefly takes a lock shared by all methods of
+     * the mock.
+     */
+    RECORD_ORDER
+}
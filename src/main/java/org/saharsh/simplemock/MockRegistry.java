@@ -0,0 +1,49 @@
+package org.saharsh.simplemock;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of every mock that is still reachable, for diagnostics, without
+ * keeping any of them alive
+ *
+ * @author Saharsh Singh
+ */
+final class MockRegistry {
+
+    private static final Set<WeakReference<Mock<?>>> LIVE = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<Mock<?>> COLLECTED = new ReferenceQueue<Mock<?>>();
+
+    // static access only
+    private MockRegistry() {
+    }
+
+    static void register(Mock<?> mock) {
+        expunge();
+        LIVE.add(new WeakReference<Mock<?>>(mock, COLLECTED));
+    }
+
+    /** @return mocks that haven't been garbage collected yet */
+    static List<Mock<?>> liveMocks() {
+        expunge();
+        List<Mock<?>> mocks = new ArrayList<Mock<?>>(LIVE.size());
+        for (WeakReference<Mock<?>> reference : LIVE) {
+            Mock<?> mock = reference.get();
+            if (mock != null) {
+                mocks.add(mock);
+            }
+        }
+        return mocks;
+    }
+
+    private static void expunge() {
+        Object collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            LIVE.remove(collected);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package org.saharsh.simplemock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves a {@link Mock} over TCP on the loopback interface, so clients running
+ * in another process (e.g. a load driver) can talk to it like they would to a
+ * real downstream service. Each request invokes a method on the mocked
+ * instance, so stubs answer it and its arguments are captured as usual.
+ * <p>
+ * Every request and response is a frame: a four byte big-endian length,
+ * followed by that many bytes of payload. A request's payload is the method
+ * name, as a four byte length followed by UTF-8, then one unsigned byte with
+ * the number of arguments, then each argument as a tagged value. A response's
+ * payload is one status byte; 0 followed by the tagged return value, or 1
+ * followed by the error message, encoded like the method name. Tagged values
+ * are described in {@link FrameCodec}: null, boolean, int, long, double,
+ * String and byte[]. Overloads are told apart by the number and types of the
+ * arguments; primitive parameters need an argument of the matching tag.
+ * <p>
+ * A single thread serves all connections using a selector, and invokes the
+ * mock on that thread. Stubs that block therefore hold up every connection.
+ *
+ * @author Saharsh Singh
+ */
+public final class MockServer implements Closeable {
+
+    /** Status byte of a successful response */
+    public static final byte OK = 0;
+
+    /** Status byte of a failed response */
+    public static final byte ERROR = 1;
+
+    private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Mock<?> mock;
+    private final Map<String, List<Method>> methods = new HashMap<String, List<Method>>();
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+
+    private MockServer(Mock<?> mock, int port) throws IOException {
+        this.mock = mock;
+        for (Method method : mock.getMockedType().getMethods()) {
+            String key = key(method.getName(), method.getParameterCount());
+            List<Method> overloads = methods.get(key);
+            if (overloads == null) {
+                overloads = new ArrayList<Method>(1);
+                methods.put(key, overloads);
+            }
+            // the mocked type needn't be public
+            method.setAccessible(true);
+            overloads.add(method);
+        }
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "simple-mock-server-" + getAddress().getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start serving the mock on an ephemeral loopback port. Use
+     * {@link #getAddress()} to find out which.
+     *
+     * @param mock
+     *            mock to dispatch requests to
+     * @return the running server
+     */
+    public static MockServer start(Mock<?> mock) {
+        return start(mock, 0);
+    }
+
+    /**
+     * Start serving the mock on the given loopback port
+     *
+     * @param mock
+     *            mock to dispatch requests to
+     * @param port
+     *            port to listen on. 0 for an ephemeral port
+     * @return the running server
+     */
+    public static MockServer start(Mock<?> mock, int port) {
+        try {
+            return new MockServer(mock, port);
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    /** @return address the server is listening on */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    /**
+     * Stop serving, closing all open connections
+     *
+     * @throws MockException
+     *             wrapping the error that stopped the server early, if any
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw MockException.wrap(failure);
+        }
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            ((Connection) key.attachment()).ready(key);
+                        }
+                    } catch (IOException e) {
+                        // the client went away, or sent a malformed frame
+                        close(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // reported by close()
+            failure = e;
+        } catch (ClosedSelectorException e) {
+            // closed while stopping
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        }
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /** Decode one request payload, invoke the mock and encode the response */
+    private ByteBuffer dispatch(ByteBuffer request, ByteBuffer out) {
+        int start = out.position();
+        out = FrameCodec.ensure(out, 5);
+        out.position(start + 4);
+        try {
+            Object result = invoke(request);
+            out = FrameCodec.write(out.put(OK), result);
+        } catch (Throwable e) {
+            out.position(start + 4);
+            out = FrameCodec.writeString(FrameCodec.ensure(out, 1).put(ERROR), String.valueOf(e));
+        }
+        out.putInt(start, out.position() - start - 4);
+        return out;
+    }
+
+    private Object invoke(ByteBuffer request) throws Throwable {
+        String name = FrameCodec.readString(request);
+        if (!request.hasRemaining()) {
+            throw new IllegalArgumentException("Missing argument count");
+        }
+        Object[] args = new Object[request.get() & 0xFF];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = FrameCodec.read(request);
+        }
+        if (request.hasRemaining()) {
+            throw new IllegalArgumentException("Unexpected bytes after arguments");
+        }
+
+        Method method = resolve(name, args);
+        try {
+            return method.invoke(mock.getMocked(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Method resolve(String name, Object[] args) throws NoSuchMethodException {
+        List<Method> overloads = methods.get(key(name, args.length));
+        if (overloads != null) {
+            for (Method method : overloads) {
+                if (accepts(method.getParameterTypes(), args)) {
+                    return method;
+                }
+            }
+        }
+        throw new NoSuchMethodException(mock.getMockedType().getName() + "." + name + " accepting " + args.length
+                + " argument(s) of the given types");
+    }
+
+    private static boolean accepts(Class<?>[] parameterTypes, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            Class<?> type = parameterTypes[i];
+            if (args[i] == null) {
+                if (type.isPrimitive()) {
+                    return false;
+                }
+            } else if (!box(type).isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        // no tag decodes to the other primitives
+        return Void.class;
+    }
+
+    private static String key(String name, int parameterCount) {
+        return name + '/' + parameterCount;
+    }
+
+    /** Buffers of one client connection */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void ready(SelectionKey key) throws IOException {
+            if (key.isReadable()) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("Connection closed by client");
+                }
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int length = in.getInt(in.position());
+                    if (length < 0 || length > MAX_FRAME_LENGTH) {
+                        throw new IOException("Invalid frame length " + length);
+                    }
+                    if (in.remaining() < 4 + length) {
+                        break;
+                    }
+                    ByteBuffer request = in.duplicate();
+                    request.position(in.position() + 4).limit(in.position() + 4 + length);
+                    out = dispatch(request, out);
+                    in.position(in.position() + 4 + length);
+                }
+                in.compact();
+
+                // make room for the whole of a frame larger than the buffer
+                if (in.position() >= 4) {
+                    in = FrameCodec.ensure(in, 4 + in.getInt(0) - in.position());
+                }
+            }
+            flush(key);
+        }
+
+        // write what the socket takes. Until it has taken the rest, stop
+        // reading requests, so a client that doesn't read can't grow the buffer
+        private void flush(SelectionKey key) throws IOException {
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            }
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+}
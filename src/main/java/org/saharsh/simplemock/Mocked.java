@@ -0,0 +1,24 @@
+package org.saharsh.simplemock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field of a test class that {@link SimpleMockRule} fills with a new
+ * mock before each test. The field can either be declared as a
+ * {@link Mock}, e.g. {@code Mock<AnotherClass>}, to get the mock container, or
+ * as the mocked type itself to get just the mocked instance.
+ *
+ * @author Saharsh Singh
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Mocked {
+
+    /** @return options to create the mock with */
+    MockOption[] options() default {};
+}
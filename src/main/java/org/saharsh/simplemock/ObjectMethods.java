@@ -0,0 +1,60 @@
+package org.saharsh.simplemock;
+
+import java.lang.reflect.Method;
+
+/**
+ * Identity based implementations of {@link Object#equals(Object)},
+ * {@link Object#hashCode()} and {@link Object#toString()} for mocked instances
+ * whose mock container doesn't have a response set for them. This keeps
+ * mocked instances usable as keys in hash based collections, and keeps those
+ * calls out of captured requests.
+ *
+ * @author Saharsh Singh
+ */
+final class ObjectMethods {
+
+    // static access only
+    private ObjectMethods() {
+    }
+
+    /**
+     * @return 'true' if the method is, or overrides, one of the
+     *         {@link Object} methods with identity semantics
+     */
+    static boolean isObjectMethod(Method method) {
+        switch (method.getParameterCount()) {
+        case 0:
+            String name = method.getName();
+            return "hashCode".equals(name) || "toString".equals(name);
+        case 1:
+            return "equals".equals(method.getName()) && method.getParameterTypes()[0] == Object.class;
+        default:
+            return false;
+        }
+    }
+
+    /** Invoke the identity based implementation of an {@link Object} method */
+    static Object invoke(Object mocked, Method method, Object[] args, Class<?> mockedType) {
+        switch (method.getName()) {
+        case "equals":
+            return mocked == args[0];
+        case "hashCode":
+            return System.identityHashCode(mocked);
+        default:
+            return "Mock[" + mockedType.getName() + "]@" + Integer.toHexString(System.identityHashCode(mocked));
+        }
+    }
+
+    /**
+     * @return the {@link Object} method that can be stubbed on a mocked
+     *         interface under the given signature. 'null' if there is none
+     */
+    static Method find(String methodName, Class<?>... argumentTypes) {
+        try {
+            Method method = Object.class.getMethod(methodName, argumentTypes);
+            return isObjectMethod(method) ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
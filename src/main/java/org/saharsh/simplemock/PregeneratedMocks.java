@@ -0,0 +1,93 @@
+package org.saharsh.simplemock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+/**
+ * Looks up mock classes generated ahead of time by {@link MockClassGenerator}.
+ * Each class loader's index is read once, and the result of each lookup is
+ * cached on the mocked type. Mock classes generated from a different version
+ * of the mocked type, or listed without a fingerprint, are ignored.
+ *
+ * @author Saharsh Singh
+ */
+final class PregeneratedMocks {
+
+    /** Weak keys, so indexes never keep a class loader alive */
+    private static final Map<ClassLoader, Properties> INDEXES = Collections
+            .synchronizedMap(new WeakHashMap<ClassLoader, Properties>());
+
+    private static final ClassValue<Optional<Class<?>>> MOCK_CLASSES = new ClassValue<Optional<Class<?>>>() {
+        @Override
+        protected Optional<Class<?>> computeValue(Class<?> toMock) {
+            ClassLoader loader = toMock.getClassLoader();
+            if (loader == null) {
+                return Optional.empty();
+            }
+            String entry = index(loader).getProperty(toMock.getName());
+            int separator = entry == null ? -1 : entry.indexOf(MockClassGenerator.FINGERPRINT_SEPARATOR);
+            if (separator < 0) {
+                return Optional.empty();
+            }
+
+            // the mocked type changed since its mock class was generated
+            if (!entry.substring(separator + 1).equals(MockClassGenerator.fingerprint(toMock))) {
+                return Optional.empty();
+            }
+            String mockClassName = entry.substring(0, separator);
+            try {
+                Class<?> mockClass = Class.forName(mockClassName, true, loader);
+                return toMock.isAssignableFrom(mockClass) ? Optional.<Class<?>> of(mockClass) : Optional.empty();
+            } catch (ClassNotFoundException | LinkageError e) {
+                // stale index, fall back to generating the class at runtime
+                return Optional.empty();
+            }
+        }
+    };
+
+    // static access only
+    private PregeneratedMocks() {
+    }
+
+    /** @return mock class generated ahead of time. 'null' if there is none */
+    static Class<?> find(Class<?> toMock) {
+        return MOCK_CLASSES.get(toMock).orElse(null);
+    }
+
+    private static Properties index(ClassLoader loader) {
+        synchronized (INDEXES) {
+            Properties index = INDEXES.get(loader);
+            if (index == null) {
+                index = load(loader);
+                INDEXES.put(loader, index);
+            }
+            return index;
+        }
+    }
+
+    // merge every index visible to the loader
+    private static Properties load(ClassLoader loader) {
+        Properties index = new Properties();
+        try {
+            Enumeration<URL> resources = loader.getResources(MockClassGenerator.INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                InputStream in = resources.nextElement().openStream();
+                try {
+                    index.load(in);
+                } finally {
+                    in.close();
+                }
+            }
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,55 @@
+package org.saharsh.simplemock;
+
+/**
+ * A mocked method invoked many times in a row right after another one, the
+ * shape of an N+1 problem, that a later trace has and an earlier one didn't,
+ * see {@link TraceDiff}
+ *
+ * @author Saharsh Singh
+ */
+public final class RepeatedCallPattern {
+
+    private final String previousMethod;
+    private final String repeatedMethod;
+    private final int before;
+    private final int after;
+
+    RepeatedCallPattern(String previousMethod, String repeatedMethod, int before, int after) {
+        this.previousMethod = previousMethod;
+        this.repeatedMethod = repeatedMethod;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @return signature of the method invoked just before the repeated calls.
+     *         'null' if they start the trace
+     */
+    public String getPreviousMethod() {
+        return previousMethod;
+    }
+
+    /** @return signature of the method invoked repeatedly */
+    public String getRepeatedMethod() {
+        return repeatedMethod;
+    }
+
+    /**
+     * @return most consecutive invocations after the previous method in the
+     *         earlier trace. 0 if it never followed it
+     */
+    public int getBefore() {
+        return before;
+    }
+
+    /** @return most consecutive invocations after the previous method in the later trace */
+    public int getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return (previousMethod == null ? "start" : previousMethod) + " then " + repeatedMethod + " x" + after
+                + " (was x" + before + ")";
+    }
+}
@@ -0,0 +1,111 @@
+package org.saharsh.simplemock;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MethodMock} implementations that answer from a script of values
+ * instead of a single constant. Used by
+ * {@link Mock#setReturnValues(List, String, Class...)},
+ * {@link Mock#setCyclicReturnValues(List, String, Class...)} and
+ * {@link Mock#setReturnValues(Iterator, String, Class...)}
+ *
+ * @author Saharsh Singh
+ */
+final class ScriptedAnswers {
+
+    // static access only
+    private ScriptedAnswers() {
+    }
+
+    static MethodMock sequential(List<?> values) {
+        return new Sequential(toArray(values));
+    }
+
+    static MethodMock cyclic(List<?> values) {
+        return new Cyclic(toArray(values));
+    }
+
+    static MethodMock lazy(Iterator<?> values) {
+        if (values == null) {
+            throw MockException.wrap(new IllegalArgumentException("Scripted values cannot be null"));
+        }
+        return new Lazy(values);
+    }
+
+    private static Object[] toArray(List<?> values) {
+        if (values == null || values.isEmpty()) {
+            throw MockException.wrap(new IllegalArgumentException("At least one scripted value is required"));
+        }
+        return values.toArray();
+    }
+
+    /**
+     * Returns each value once, in order, then keeps returning the last one.
+     * The cursor stops advancing once the end is reached so it can never
+     * overflow, no matter how often the method is called.
+     */
+    private static final class Sequential implements MethodMock {
+
+        private final Object[] values;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        Sequential(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object runMockImplementation(Object[] args) {
+            final int last = values.length - 1;
+            if (cursor.get() >= last) {
+                return values[last];
+            }
+            return values[Math.min(cursor.getAndIncrement(), last)];
+        }
+    }
+
+    /** Returns the values in order, wrapping around to the first after the last */
+    private static final class Cyclic implements MethodMock {
+
+        private final Object[] values;
+        private final AtomicLong cursor = new AtomicLong();
+
+        Cyclic(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object runMockImplementation(Object[] args) {
+            return values[(int) (cursor.getAndIncrement() % values.length)];
+        }
+    }
+
+    /**
+     * Pulls values from an iterator one invocation at a time, so only the value
+     * being returned is ever held on the heap. Once the iterator is exhausted,
+     * the last value pulled keeps being returned ('null' if there was none).
+     */
+    private static final class Lazy implements MethodMock {
+
+        private final Iterator<?> values;
+        private Object last;
+
+        Lazy(Iterator<?> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object runMockImplementation(Object[] args) {
+            // iterators aren't thread safe, so this is the one place a lock is
+            // unavoidable
+            synchronized (values) {
+                if (values.hasNext()) {
+                    last = values.next();
+                }
+                return last;
+            }
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package org.saharsh.simplemock;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Supplier;
 
-import net.sf.cglib.proxy.Enhancer;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
@@ -26,7 +39,17 @@ public final class SimpleMock {
      * is used. For concrete class types, 'Code Generation Library' is used.
      * <p>
      * NOTE: For concrete class types, only classes with a 'no-arg' constructor
-     * can be mocked
+     * can be mocked, unless {@link MockOption#SKIP_CONSTRUCTOR} is used
+     * <p>
+     * Unless a response is set for them, {@link Object#equals(Object)},
+     * {@link Object#hashCode()} and {@link Object#toString()} are based on the
+     * identity of the mocked instance and their invocations aren't captured.
+     * <p>
+     * Mock classes generated ahead of time by {@link MockClassGenerator} are
+     * loaded instead of being generated, when present on the class path.
+     * Either way, each mock class is created once per mocked type and reused
+     * until the type's class loader is garbage collected, see
+     * {@link #getMockClassStatistics()}.
      *
      * @param <T>
      *            type to mock
@@ -35,41 +58,209 @@ public final class SimpleMock {
      * @return a mock container that can be used to inject return values and
      *         capture arguments for specific methods
      */
-    @SuppressWarnings("unchecked")
     public static <T> Mock<T> mockType(Class<T> toMock) {
+        return mockType(toMock, new MockOption[0]);
+    }
+
+    /**
+     * Same as {@link #mockType(Class)}, but lets you change how the mock
+     * behaves using {@link MockOption}s
+     *
+     * @param <T>
+     *            type to mock
+     * @param toMock
+     *            type to mock
+     * @param options
+     *            options to create the mock with
+     * @return a mock container that can be used to inject return values and
+     *         capture arguments for specific methods
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Mock<T> mockType(final Class<T> toMock, MockOption... options) {
 
         // instantiate mock container
-        final Mock<T> mock = new Mock<T>(toMock);
+        final Set<MockOption> optionSet = EnumSet.noneOf(MockOption.class);
+        Collections.addAll(optionSet, options);
+        final Mock<T> mock = new Mock<T>(toMock, optionSet);
+        MockRegistry.register(mock);
 
-        // generate mocked instance
+        // generate mocked instance, now or on first use
         if (toMock.isInterface()) {
 
             // for interfaces, create a Java proxy
-            InvocationHandler handler = new InvocationHandler() {
+            final InvocationHandler handler = new InvocationHandler() {
 
                 @Override
                 public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                    return mock.runMethod(method, args);
+                    if (ObjectMethods.isObjectMethod(method) && !mock.isStubbed(method)) {
+                        return ObjectMethods.invoke(proxy, method, args, toMock);
+                    }
+                    return mock.runMethod(proxy, method, args);
                 }
             };
-            mock.setMocked((T) Proxy.newProxyInstance(toMock.getClassLoader(), new Class<?>[] { toMock }, handler));
+            mock.setFactory(new Supplier<T>() {
+                @Override
+                public T get() {
+                    return (T) MockClasses.newInterfaceMock(toMock, handler);
+                }
+            });
         } else {
 
             // otherwise, use CGLib
-            MethodInterceptor handler = new MethodInterceptor() {
+            final MethodInterceptor handler = new MethodInterceptor() {
 
                 @Override
                 public Object intercept(Object object, Method method, Object[] args, MethodProxy proxy)
                         throws Throwable {
-                    return mock.runMethod(method, args);
+                    if (ObjectMethods.isObjectMethod(method) && !mock.isStubbed(method)) {
+                        return ObjectMethods.invoke(object, method, args, toMock);
+                    }
+                    return mock.runMethod(object, method, args);
                 }
             };
-            mock.setMocked((T) Enhancer.create(toMock, handler));
+            final boolean skipConstructor = optionSet.contains(MockOption.SKIP_CONSTRUCTOR);
+            mock.setFactory(new Supplier<T>() {
+                @Override
+                public T get() {
+                    return (T) MockClasses.newClassMock(toMock, handler, skipConstructor);
+                }
+            });
+        }
+        if (!optionSet.contains(MockOption.LAZY)) {
+            mock.getMocked();
         }
 
         return mock;
     }
 
+    /**
+     * Emit a Flight Recorder event for invocations of methods on all mocked
+     * instances, so time spent inside mocks shows up when profiling. Events
+     * are named 'org.saharsh.simplemock.MockInvocation' and record the mocked
+     * type, the method, the duration and the invoking thread. They are only
+     * committed while a recording with the event enabled is running.
+     * <p>
+     * While neither events nor allocation tracking are enabled, which is the
+     * default, the only overhead on invocations is a single branch.
+     *
+     * @param sampleEvery
+     *            emit events for one in this many invocations, chosen at
+     *            random. Use 1 to emit an event for every invocation
+     */
+    public static void enableFlightRecorderEvents(int sampleEvery) {
+        InvocationHooks.setFlightRecorderEvents(new FlightRecorderEvents(sampleEvery));
+    }
+
+    /**
+     * Stop emitting Flight Recorder events enabled using
+     * {@link #enableFlightRecorderEvents(int)}
+     */
+    public static void disableFlightRecorderEvents() {
+        InvocationHooks.setFlightRecorderEvents(null);
+    }
+
+    /**
+     * Measure the bytes allocated by invocations of methods on all mocked
+     * instances, including capturing the arguments and running any mock
+     * implementation. Results are reported per method by
+     * {@link Mock#getDiagnostics()}.
+     * <p>
+     * While neither tracking nor Flight Recorder events are enabled, which is
+     * the default, the only overhead on invocations is a single branch.
+     *
+     * @param sampleEvery
+     *            measure one in this many invocations, chosen at random. Use 1
+     *            to measure every invocation
+     */
+    public static void enableAllocationTracking(int sampleEvery) {
+        InvocationHooks.setAllocationTracker(new AllocationTracker(sampleEvery));
+    }
+
+    /**
+     * Stop measuring allocations enabled using
+     * {@link #enableAllocationTracking(int)}. Measurements taken so far are
+     * kept.
+     */
+    public static void disableAllocationTracking() {
+        InvocationHooks.setAllocationTracker(null);
+    }
+
+    /**
+     * @return diagnostics of every mock that hasn't been garbage collected
+     *         yet, see {@link Mock#getDiagnostics()}
+     */
+    public static List<MockDiagnostics> getMockDiagnostics() {
+        List<MockDiagnostics> diagnostics = new ArrayList<MockDiagnostics>();
+        for (Mock<?> mock : MockRegistry.liveMocks()) {
+            diagnostics.add(mock.getDiagnostics());
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Describe the mocked methods retaining the most bytes across every mock
+     * that hasn't been garbage collected yet, one per line, largest first.
+     * Useful to log from long running tests to decide which methods need a
+     * {@link CaptureProjection} or interning.
+     *
+     * @param limit
+     *            maximum number of methods to describe
+     * @return the description
+     */
+    public static String dumpMockDiagnostics(int limit) {
+        List<MethodDiagnostics> offenders = new ArrayList<MethodDiagnostics>();
+        for (MockDiagnostics mock : getMockDiagnostics()) {
+            offenders.addAll(mock.getMethods());
+        }
+        Collections.sort(offenders, new Comparator<MethodDiagnostics>() {
+            @Override
+            public int compare(MethodDiagnostics first, MethodDiagnostics second) {
+                return Long.compare(second.getEstimatedBytes(), first.getEstimatedBytes());
+            }
+        });
+
+        StringBuilder dump = new StringBuilder();
+        for (int i = 0; i < offenders.size() && i < limit; i++) {
+            dump.append(offenders.get(i)).append(System.lineSeparator());
+        }
+        return dump.toString();
+    }
+
+    /**
+     * Get counts of the classes created to mock types. Useful to check that a
+     * long running test suite, or one that mocks types from short-lived class
+     * loaders, isn't steadily growing metaspace.
+     *
+     * @return snapshot of the mock class statistics
+     */
+    public static MockClassStatistics getMockClassStatistics() {
+        return MockClasses.statistics();
+    }
+
+    /**
+     * Stop reusing the mock classes of types defined by the given class
+     * loader, so they can be unloaded once no mocked instance refers to them.
+     * Mocking such a type again creates a new mock class.
+     * <p>
+     * Calling this isn't required for class loaders that are discarded, as
+     * their mock classes are unloaded along with them.
+     *
+     * @param loader
+     *            class loader of the mocked types. 'null' for the bootstrap
+     *            class loader
+     */
+    public static void evictMockClasses(ClassLoader loader) {
+        MockClasses.evict(loader);
+    }
+
+    /**
+     * Same as {@link #evictMockClasses(ClassLoader)}, but for the mock classes
+     * of all types
+     */
+    public static void evictMockClasses() {
+        MockClasses.evictAll();
+    }
+
     /**
      * Use this method to set the value of any instance field, regardless of
      * visibility.
@@ -197,6 +388,84 @@ public final class SimpleMock {
         }
     }
 
+    /**
+     * Lazily reads values written to a file with an
+     * {@link java.io.ObjectOutputStream}, one object at a time. Intended to be
+     * used with {@link Mock#setReturnValues(Iterator, String, Class...)} to
+     * replay very large scripted sequences without loading them onto the heap
+     * up front. The file is closed once the last value has been read, or when
+     * the returned reader is closed.
+     * <p>
+     * NOTE: The writer should call {@link java.io.ObjectOutputStream#reset()}
+     * after each value. Otherwise the stream's back-reference table keeps
+     * every value read so far reachable.
+     *
+     * @param file
+     *            file containing serialized values, in the order they should be
+     *            returned
+     * @return a reader over the values in the file
+     */
+    public static ValueReader readValues(final File file) {
+        final ObjectInputStream in;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+        return new ValueReader() {
+
+            private Object next;
+            private boolean fetched;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (!fetched && !done) {
+                    try {
+                        next = in.readObject();
+                        fetched = true;
+                    } catch (EOFException e) {
+                        done = true;
+                        close();
+                    } catch (Exception e) {
+                        done = true;
+                        close();
+                        throw MockException.wrap(e);
+                    }
+                }
+                return fetched;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object value = next;
+                next = null;
+                fetched = false;
+                return value;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                done = true;
+                fetched = false;
+                next = null;
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        };
+    }
+
     private static Field findField(Class<?> type, String fieldName) throws NoSuchFieldException {
         try {
             return type.getDeclaredField(fieldName);
@@ -0,0 +1,54 @@
+package org.saharsh.simplemock;
+
+import org.junit.rules.MethodRule;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+
+/**
+ * JUnit rule that fills the {@link Mocked} and {@link InjectMocks} fields of a
+ * test before it runs, in place of the usual
+ * {@link SimpleMock#mockType(Class, MockOption...)} and
+ * {@link SimpleMock#mockField(Object, String, Object)} calls in a '@Before'
+ * method:
+ *
+ * <pre>
+ * &#64;Rule
+ * public final SimpleMockRule mocks = new SimpleMockRule();
+ *
+ * &#64;Mocked
+ * private Mock&lt;AnotherClass&gt; someDependency;
+ *
+ * &#64;InjectMocks
+ * private SomeClass classUnderTest;
+ * </pre>
+ *
+ * The fields and constructors to use are worked out once per test class and
+ * reused for every test. Mocks are {@link Mock#reset() reset} after each test,
+ * then returned to a pool and handed to a later test of the same class, so
+ * mocks must not be used once their test has finished. Mocks whose captured
+ * requests were projected or interned aren't reused, and later tests get new
+ * ones.
+ * <p>
+ * NOTE: Requires JUnit 4 on the class path, which Simple Mock doesn't bring in
+ * by itself
+ *
+ * @author Saharsh Singh
+ */
+public class SimpleMockRule implements MethodRule {
+
+    @Override
+    public Statement apply(final Statement base, FrameworkMethod method, final Object target) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                InjectionPlan plan = InjectionPlan.of(target.getClass());
+                Mock<?>[] mocks = plan.inject(target);
+                try {
+                    base.evaluate();
+                } finally {
+                    plan.release(mocks);
+                }
+            }
+        };
+    }
+}
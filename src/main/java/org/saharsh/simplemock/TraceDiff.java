@@ -0,0 +1,199 @@
+package org.saharsh.simplemock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares two traces written by {@link Mock#writeTrace(java.io.OutputStream)},
+ * typically from the same test in two builds, to spot code under test that
+ * started calling its dependencies more often. Reports methods whose number of
+ * invocations changed and, when both traces were recorded with
+ * {@link MockOption#RECORD_ORDER}, new N+1 patterns: a method invoked many
+ * times in a row right after another one, which didn't happen before.
+ * <p>
+ * Can also be run from the command line, exiting with status 1 if anything
+ * changed:
+ * {@code java org.saharsh.simplemock.TraceDiff before.trace after.trace [minRepeats]}
+ *
+ * @author Saharsh Singh
+ */
+public final class TraceDiff {
+
+    /** Consecutive invocations from which repeated calls are reported by default */
+    public static final int DEFAULT_MIN_REPEATS = 10;
+
+    private final String mockedType;
+    private final boolean ordered;
+    private final List<CallCountChange> countChanges;
+    private final List<RepeatedCallPattern> newRepeatedCalls;
+
+    private TraceDiff(InvocationTrace before, InvocationTrace after, int minRepeats) {
+        if (!before.mockedType.equals(after.mockedType)) {
+            throw MockException.wrap(new IllegalArgumentException(
+                    "Traces are of different types: " + before.mockedType + " and " + after.mockedType));
+        }
+        this.mockedType = after.mockedType;
+        this.ordered = before.ordered && after.ordered;
+
+        // count changes, largest first
+        Set<String> methods = new LinkedHashSet<String>(before.counts.keySet());
+        methods.addAll(after.counts.keySet());
+        List<CallCountChange> countChanges = new ArrayList<CallCountChange>();
+        for (String method : methods) {
+            long beforeCount = count(before.counts, method);
+            long afterCount = count(after.counts, method);
+            if (beforeCount != afterCount) {
+                countChanges.add(new CallCountChange(method, beforeCount, afterCount));
+            }
+        }
+        Collections.sort(countChanges, new Comparator<CallCountChange>() {
+            @Override
+            public int compare(CallCountChange first, CallCountChange second) {
+                return Long.compare(Math.abs(second.getAfter() - second.getBefore()),
+                        Math.abs(first.getAfter() - first.getBefore()));
+            }
+        });
+        this.countChanges = Collections.unmodifiableList(countChanges);
+
+        // repeated calls reaching the threshold only in the later trace
+        List<RepeatedCallPattern> newRepeatedCalls = new ArrayList<RepeatedCallPattern>();
+        if (ordered) {
+            for (Map.Entry<String, Map<String, Integer>> callee : after.repeats.entrySet()) {
+                Map<String, Integer> callersBefore = before.repeats.get(callee.getKey());
+                for (Map.Entry<String, Integer> caller : callee.getValue().entrySet()) {
+                    Integer longestBefore = callersBefore == null ? null : callersBefore.get(caller.getKey());
+                    int beforeRepeats = longestBefore == null ? 0 : longestBefore;
+                    if (caller.getValue() >= minRepeats && beforeRepeats < minRepeats) {
+                        newRepeatedCalls.add(new RepeatedCallPattern(
+                                InvocationTrace.START.equals(caller.getKey()) ? null : caller.getKey(),
+                                callee.getKey(), beforeRepeats, caller.getValue()));
+                    }
+                }
+            }
+        }
+        Collections.sort(newRepeatedCalls, new Comparator<RepeatedCallPattern>() {
+            @Override
+            public int compare(RepeatedCallPattern first, RepeatedCallPattern second) {
+                return Integer.compare(second.getAfter(), first.getAfter());
+            }
+        });
+        this.newRepeatedCalls = Collections.unmodifiableList(newRepeatedCalls);
+    }
+
+    private static long count(Map<String, Long> counts, String method) {
+        Long count = counts.get(method);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Compare two traces
+     *
+     * @param before
+     *            trace of the earlier run
+     * @param after
+     *            trace of the later run
+     * @param minRepeats
+     *            consecutive invocations of a method from which they are
+     *            reported as repeated calls
+     * @return the differences
+     */
+    public static TraceDiff compare(InputStream before, InputStream after, int minRepeats) {
+        return new TraceDiff(read(before, "before trace"), read(after, "after trace"), minRepeats);
+    }
+
+    /**
+     * Same as {@link #compare(InputStream, InputStream, int)}, but reads the
+     * traces from files. Errors name the file that couldn't be read.
+     */
+    public static TraceDiff compare(File before, File after, int minRepeats) {
+        return new TraceDiff(read(before), read(after), minRepeats);
+    }
+
+    private static InvocationTrace read(File file) {
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                return read(in, file.getPath());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw MockException.wrap(e);
+        }
+    }
+
+    private static InvocationTrace read(InputStream in, String name) {
+        try {
+            return InvocationTrace.read(in);
+        } catch (IOException e) {
+            throw MockException.wrap(new IOException("Failed to read " + name, e));
+        } catch (IllegalArgumentException e) {
+            throw MockException.wrap(new IllegalArgumentException(name + ": " + e.getMessage(), e));
+        }
+    }
+
+    /** @return name of the mocked type the traces are of */
+    public String getMockedType() {
+        return mockedType;
+    }
+
+    /** @return methods whose number of invocations changed, largest change first */
+    public List<CallCountChange> getCountChanges() {
+        return countChanges;
+    }
+
+    /**
+     * @return repeated calls found only in the later trace, longest first.
+     *         Always empty unless both traces include the order of invocations
+     */
+    public List<RepeatedCallPattern> getNewRepeatedCalls() {
+        return newRepeatedCalls;
+    }
+
+    /** @return 'true' if any count changed or any new repeated calls were found */
+    public boolean hasChanges() {
+        return !countChanges.isEmpty() || !newRepeatedCalls.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        String newLine = System.lineSeparator();
+        StringBuilder report = new StringBuilder("Invocations of ").append(mockedType).append(newLine);
+        if (!hasChanges()) {
+            report.append("  no changes").append(newLine);
+        }
+        for (CallCountChange change : countChanges) {
+            report.append("  ").append(change).append(newLine);
+        }
+        if (!newRepeatedCalls.isEmpty()) {
+            report.append("New repeated calls").append(newLine);
+            for (RepeatedCallPattern pattern : newRepeatedCalls) {
+                report.append("  ").append(pattern).append(newLine);
+            }
+        }
+        if (!ordered) {
+            report.append("(order not recorded in both traces, repeated calls not compared)").append(newLine);
+        }
+        return report.toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: TraceDiff <before> <after> [minRepeats]");
+            System.exit(2);
+        }
+        int minRepeats = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MIN_REPEATS;
+        TraceDiff diff = compare(new File(args[0]), new File(args[1]), minRepeats);
+        System.out.print(diff);
+        System.exit(diff.hasChanges() ? 1 : 0);
+    }
+}
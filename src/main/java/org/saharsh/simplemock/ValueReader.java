@@ -0,0 +1,19 @@
+package org.saharsh.simplemock;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Lazily reads scripted values from a file, see
+ * {@link SimpleMock#readValues(java.io.File)}. The file is closed once the last
+ * value has been read. Close the reader to release the file early, e.g. when a
+ * test doesn't use up the whole script.
+ *
+ * @author Saharsh Singh
+ */
+public interface ValueReader extends Iterator<Object>, Closeable {
+
+    /** Close the underlying file. Further calls to hasNext return 'false' */
+    @Override
+    void close();
+}
@@ -27,6 +27,8 @@
  * <li>Create mock implementations of classes and interfaces</li>
  * <li>Override implementation of methods in mocked classes and interfaces
  * easily and on the fly.</li>
+ * <li>Script sequential or cyclic return values for a method, including very
+ * large scripts read lazily from an iterator or file.</li>
  * <li>Verify invocations of methods in mocked types, including order in which
  * they occurred and arguments that were passed.</li>
  * <li>Override the value of any field, instance or static, of any class,
@@ -0,0 +1,112 @@
+package org.saharsh.simplemock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAwaitInvocations {
+
+    private Mock<Listener> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Listener.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @Test
+    public void test_awaitInvocations_when_invoked_asynchronously() {
+        fireLater(5);
+        Assert.assertTrue(mock.awaitInvocations(5, 10, TimeUnit.SECONDS, "onEvent", String.class));
+        Assert.assertEquals(5, mock.getCapturedRequestsView("onEvent", String.class).size());
+    }
+
+    @Test
+    public void test_awaitInvocations_when_already_invoked() {
+        mock.getMocked().onEvent("done");
+        Assert.assertTrue(mock.awaitInvocations(1, 0, TimeUnit.MILLISECONDS, "onEvent", String.class));
+    }
+
+    @Test
+    public void test_awaitInvocations_when_timing_out() {
+        mock.getMocked().onEvent("only one");
+        long start = System.nanoTime();
+        Assert.assertFalse(mock.awaitInvocations(2, 50, TimeUnit.MILLISECONDS, "onEvent", String.class));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void test_awaitInvocations_when_reset_while_waiting() throws Exception {
+        mock.getMocked().onEvent("before reset");
+        final boolean[] result = new boolean[1];
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result[0] = mock.awaitInvocations(2, 10, TimeUnit.SECONDS, "onEvent", String.class);
+            }
+        });
+        waiter.start();
+        mock.reset();
+        fireLater(3);
+        waiter.join();
+        Assert.assertTrue(result[0]);
+    }
+
+    @Test
+    public void test_awaitInvocation_for_returning_matching_arguments() {
+        fireLater(10);
+        Object[] args = mock.awaitInvocation(new ArgumentMatcher() {
+            @Override
+            public boolean matches(Object[] args) {
+                return "event7".equals(args[0]);
+            }
+        }, 10, TimeUnit.SECONDS, "onEvent", String.class);
+        Assert.assertNotNull(args);
+        Assert.assertEquals("event7", args[0]);
+    }
+
+    @Test
+    public void test_awaitInvocation_when_no_match() {
+        mock.getMocked().onEvent("something else");
+        Assert.assertNull(mock.awaitInvocation(new ArgumentMatcher() {
+            @Override
+            public boolean matches(Object[] args) {
+                return "wanted".equals(args[0]);
+            }
+        }, 50, TimeUnit.MILLISECONDS, "onEvent", String.class));
+    }
+
+    @Test
+    public void test_awaitInvocations_when_interrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            mock.awaitInvocations(1, 10, TimeUnit.SECONDS, "onEvent", String.class);
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            Assert.assertTrue(e.getCause() instanceof InterruptedException);
+            Assert.assertTrue(Thread.interrupted());
+        }
+    }
+
+    private void fireLater(final int events) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    mock.getMocked().onEvent("event" + i);
+                }
+            }
+        }).start();
+    }
+
+    private static interface Listener {
+        void onEvent(String event);
+    }
+}
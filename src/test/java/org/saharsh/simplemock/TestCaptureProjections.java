@@ -0,0 +1,99 @@
+package org.saharsh.simplemock;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestCaptureProjections {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestCaptureProjections.class);
+
+    private Mock<Sink> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Sink.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @Test
+    public void test_setCaptureProjection_for_capturing_only_projected_values() {
+        mock.setCaptureProjection(new CaptureProjection() {
+            @Override
+            public Object[] project(Object[] args) {
+                return new Object[] { ((byte[]) args[0]).length };
+            }
+        }, "write", byte[].class, String.class);
+
+        mock.getMocked().write(new byte[1024], "first");
+        mock.getMocked().write(new byte[2048], "second");
+
+        List<Object[]> captured = mock.getAllCapturedRequests("write", byte[].class, String.class);
+        Assert.assertEquals(2, captured.size());
+        Assert.assertArrayEquals(new Object[] { 1024 }, captured.get(0));
+        Assert.assertArrayEquals(new Object[] { 2048 }, mock.getLastRequest("write", byte[].class, String.class));
+    }
+
+    @Test
+    public void test_setCaptureProjection_when_reset_to_null() {
+        mock.setCaptureProjection(new CaptureProjection() {
+            @Override
+            public Object[] project(Object[] args) {
+                return new Object[0];
+            }
+        }, "write", byte[].class, String.class);
+        mock.getMocked().write(new byte[1], "projected");
+
+        mock.setCaptureProjection(null, "write", byte[].class, String.class);
+        mock.getMocked().write(new byte[1], "full");
+
+        List<Object[]> captured = mock.getAllCapturedRequests("write", byte[].class, String.class);
+        Assert.assertEquals(1, captured.size());
+        Assert.assertEquals("full", captured.get(0)[1]);
+    }
+
+    @Test
+    public void test_setLongCaptureProjection_for_capturing_into_primitive_column() {
+        mock.setLongCaptureProjection(new LongCaptureProjection() {
+            @Override
+            public long project(Object[] args) {
+                return ((byte[]) args[0]).length;
+            }
+        }, "write", byte[].class, String.class);
+
+        for (int i = 0; i < 100; i++) {
+            mock.getMocked().write(new byte[i], "chunk" + i);
+        }
+
+        long[] lengths = mock.getCapturedLongs("write", byte[].class, String.class);
+        Assert.assertEquals(100, lengths.length);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i, lengths[i]);
+        }
+        Assert.assertArrayEquals(new Object[] { 99L }, mock.getLastRequest("write", byte[].class, String.class));
+
+        // projection survives clearing
+        mock.clearCapturedRequests();
+        mock.getMocked().write(new byte[7], "again");
+        Assert.assertArrayEquals(new long[] { 7 }, mock.getCapturedLongs("write", byte[].class, String.class));
+    }
+
+    @Test
+    public void test_getCapturedLongs_when_no_long_projection_set() {
+        mock.getMocked().write(new byte[1], "full");
+        try {
+            mock.getCapturedLongs("write", byte[].class, String.class);
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    private static interface Sink {
+        void write(byte[] buffer, String label);
+    }
+}
@@ -0,0 +1,209 @@
+package org.saharsh.simplemock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCapturedRequestViews {
+
+    private Mock<Repository> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Repository.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @Test
+    public void test_getCapturedRequestsView_for_reflecting_later_invocations() {
+        List<Object[]> view = mock.getCapturedRequestsView("findById", long.class);
+        Assert.assertEquals(0, view.size());
+
+        mock.getMocked().findById(1L);
+        mock.getMocked().findById(2L);
+
+        Assert.assertEquals(2, view.size());
+        Assert.assertEquals(1L, view.get(0)[0]);
+        Assert.assertEquals(2L, view.get(1)[0]);
+
+        mock.clearCapturedRequests();
+        Assert.assertEquals(0, view.size());
+    }
+
+    @Test
+    public void test_reset_for_keeping_views_and_cursors_live() {
+        mock.internCapturedRequests("findById", long.class);
+        List<Object[]> view = mock.getCapturedRequestsView("findById", long.class);
+        CaptureCursor cursor = mock.newCaptureCursor("findById", long.class);
+        mock.getMocked().findById(1L);
+        Assert.assertEquals(1, cursor.available());
+
+        mock.reset();
+        Assert.assertEquals(0, view.size());
+        Assert.assertEquals(0, cursor.available());
+
+        mock.getMocked().findById(2L);
+        mock.getMocked().findById(2L);
+        Assert.assertEquals(2, view.size());
+        Assert.assertEquals(2L, view.get(0)[0]);
+        Assert.assertEquals(2, cursor.available());
+        Assert.assertEquals(2, mock.getAllCapturedRequests("findById", long.class).size());
+
+        // still interned, so repeated invocations share one array
+        Assert.assertSame(view.get(0), view.get(1));
+    }
+
+    @Test
+    public void test_getCapturedRequestsView_for_being_read_only() {
+        mock.getMocked().findById(1L);
+        try {
+            mock.getCapturedRequestsView("findById", long.class).remove(0);
+            Assert.fail("Expected exception");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_getAllCapturedRequests_for_not_reflecting_later_invocations() {
+        mock.getMocked().findById(1L);
+        List<Object[]> copy = mock.getAllCapturedRequests("findById", long.class);
+        mock.getMocked().findById(2L);
+        Assert.assertEquals(1, copy.size());
+    }
+
+    @Test
+    public void test_getAllCapturedRequests_when_cleared_concurrently() throws Exception {
+        final Repository mocked = mock.getMocked();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread clearer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long id = 0;
+                while (done.getCount() > 0) {
+                    for (int i = 0; i < 100; i++) {
+                        mocked.findById(id++);
+                    }
+                    mock.clearCapturedRequests();
+                }
+            }
+        });
+        clearer.start();
+        try {
+            for (int i = 0; i < 20000; i++) {
+                for (Object[] args : mock.getAllCapturedRequests("findById", long.class)) {
+                    Assert.assertNotNull(args);
+                }
+            }
+        } finally {
+            done.countDown();
+            clearer.join();
+        }
+    }
+
+    @Test
+    public void test_streamCapturedRequests_and_countCapturedRequests_for_filtering() {
+        for (long id = 0; id < 100; id++) {
+            mock.getMocked().findById(id);
+        }
+
+        Assert.assertEquals(50,
+                mock.streamCapturedRequests("findById", long.class).filter(new Predicate<Object[]>() {
+                    @Override
+                    public boolean test(Object[] args) {
+                        return (Long) args[0] % 2 == 0;
+                    }
+                }).count());
+        Assert.assertEquals(10, mock.countCapturedRequests(new ArgumentMatcher() {
+            @Override
+            public boolean matches(Object[] args) {
+                return (Long) args[0] < 10;
+            }
+        }, "findById", long.class));
+        Assert.assertEquals(0, mock.countCapturedRequests(new ArgumentMatcher() {
+            @Override
+            public boolean matches(Object[] args) {
+                return true;
+            }
+        }, "save", String.class));
+    }
+
+    @Test
+    public void test_newCaptureCursor_for_reading_incrementally() {
+        CaptureCursor cursor = mock.newCaptureCursor("findById", long.class);
+        Assert.assertFalse(cursor.hasNext());
+
+        mock.getMocked().findById(1L);
+        mock.getMocked().findById(2L);
+        Assert.assertEquals(2, cursor.available());
+        Assert.assertEquals(1L, cursor.next()[0]);
+        Assert.assertEquals(2L, cursor.next()[0]);
+        Assert.assertFalse(cursor.hasNext());
+
+        mock.getMocked().findById(3L);
+        final List<Object> seen = new ArrayList<Object>();
+        cursor.forEachNew(new Consumer<Object[]>() {
+            @Override
+            public void accept(Object[] args) {
+                seen.add(args[0]);
+            }
+        });
+        Assert.assertEquals(1, seen.size());
+        Assert.assertEquals(3L, seen.get(0));
+        Assert.assertEquals(0, cursor.available());
+
+        // cursor starts over once requests are cleared
+        mock.clearCapturedRequests("findById", long.class);
+        mock.getMocked().findById(4L);
+        Assert.assertEquals(4L, cursor.next()[0]);
+    }
+
+    @Test
+    public void test_views_when_written_concurrently() throws Exception {
+        final int threads = 8;
+        final int callsPerThread = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < callsPerThread; i++) {
+                        mock.getMocked().findById(i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        CaptureCursor cursor = mock.newCaptureCursor("findById", long.class);
+        start.countDown();
+        int read = 0;
+        while (done.getCount() > 0 || cursor.hasNext()) {
+            while (cursor.hasNext()) {
+                Assert.assertNotNull(cursor.next());
+                read++;
+            }
+        }
+
+        Assert.assertEquals(threads * callsPerThread, read);
+        Assert.assertEquals(threads * callsPerThread, mock.getCapturedRequestsView("findById", long.class).size());
+    }
+
+    private static interface Repository {
+        String findById(long id);
+
+        void save(String entity);
+    }
+}
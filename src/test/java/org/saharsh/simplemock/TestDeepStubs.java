@@ -0,0 +1,87 @@
+package org.saharsh.simplemock;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestDeepStubs {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestDeepStubs.class);
+
+    @Test
+    public void test_deep_stubs_when_option_not_set() {
+        Mock<Client> mock = SimpleMock.mockType(Client.class);
+        Assert.assertNull(mock.getMocked().users());
+        try {
+            mock.getDeepStub("users");
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_deep_stubs_for_returning_cached_child_mocks() {
+        Mock<Client> mock = SimpleMock.mockType(Client.class, MockOption.DEEP_STUBS);
+
+        Users users = mock.getMocked().users();
+        Assert.assertNotNull(users);
+        Assert.assertSame(users, mock.getMocked().users());
+        Assert.assertSame(users, mock.getDeepStub("users").getMocked());
+
+        // unmockable return types still return 'null'
+        Assert.assertNull(users.byId(1).name());
+    }
+
+    @Test
+    public void test_deep_stubs_for_stubbing_and_verifying_nested_calls() {
+        Mock<Client> mock = SimpleMock.mockType(Client.class, MockOption.DEEP_STUBS);
+        Mock<?> users = mock.getDeepStub("users");
+        users.getDeepStub("byId", long.class).setReturnValue("Jane", "name");
+
+        Assert.assertEquals("Jane", mock.getMocked().users().byId(42).name());
+        Assert.assertEquals(42L, users.getLastRequest("byId", long.class)[0]);
+    }
+
+    @Test
+    public void test_deep_stubs_when_method_stubbed() {
+        Mock<Client> mock = SimpleMock.mockType(Client.class, MockOption.DEEP_STUBS);
+        mock.setReturnValue(null, "users");
+        Assert.assertNull(mock.getMocked().users());
+    }
+
+    @Test
+    public void test_deep_stubs_for_class_return_types() {
+        Mock<Client> mock = SimpleMock.mockType(Client.class, MockOption.DEEP_STUBS);
+        Assert.assertNotNull(mock.getMocked().settings());
+        try {
+            mock.getDeepStub("version");
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    public static interface Client {
+        Users users();
+
+        Settings settings();
+
+        String version();
+    }
+
+    public static interface Users {
+        User byId(long id);
+    }
+
+    public static interface User {
+        String name();
+    }
+
+    public static class Settings {
+        public String get(String key) {
+            return key;
+        }
+    }
+}
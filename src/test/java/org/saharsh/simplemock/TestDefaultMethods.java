@@ -0,0 +1,116 @@
+package org.saharsh.simplemock;
+
+import java.io.IOException;
+import java.util.Comparator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDefaultMethods {
+
+    @Test
+    public void test_default_methods_when_option_not_set() {
+        Mock<Greeter> mock = SimpleMock.mockType(Greeter.class);
+        mock.setReturnValue("World", "name");
+        Assert.assertNull(mock.getMocked().greet());
+    }
+
+    @Test
+    public void test_default_methods_for_calling_real_implementation() {
+        Mock<Greeter> mock = SimpleMock.mockType(Greeter.class, MockOption.CALL_DEFAULT_METHODS);
+        mock.setReturnValue("World", "name");
+
+        Assert.assertEquals("Hello, World!", mock.getMocked().greet());
+        Assert.assertEquals("Hi, World!", mock.getMocked().greet("Hi"));
+        Assert.assertEquals(3, mock.getMocked().length(3));
+
+        // passed through invocations are still captured
+        Assert.assertEquals(1, mock.getAllCapturedRequests("greet").size());
+        Assert.assertEquals(2, mock.getAllCapturedRequests("name").size());
+        Assert.assertEquals("Hi", mock.getLastRequest("greet", String.class)[0]);
+    }
+
+    @Test
+    public void test_default_methods_when_stubbed() {
+        Mock<Greeter> mock = SimpleMock.mockType(Greeter.class, MockOption.CALL_DEFAULT_METHODS);
+        mock.setReturnValue("stubbed", "greet");
+        Assert.assertEquals("stubbed", mock.getMocked().greet());
+    }
+
+    @Test
+    public void test_default_methods_for_propagating_checked_exceptions() {
+        Mock<Greeter> mock = SimpleMock.mockType(Greeter.class, MockOption.CALL_DEFAULT_METHODS);
+        try {
+            mock.getMocked().fail();
+            Assert.fail("Expected exception");
+        } catch (IOException e) {
+            Assert.assertEquals("real failure", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_default_methods_on_class_mock() {
+        Mock<GreeterImpl> mock = SimpleMock.mockType(GreeterImpl.class, MockOption.CALL_DEFAULT_METHODS);
+        mock.setReturnValue("Class", "name");
+        Assert.assertEquals("Hello, Class!", mock.getMocked().greet());
+    }
+
+    @Test
+    public void test_default_methods_inherited_from_jdk_interface() {
+        Mock<Repo> mock = SimpleMock.mockType(Repo.class, MockOption.CALL_DEFAULT_METHODS);
+        mock.setMockImplmentation(new MethodMock() {
+            @Override
+            public Object runMockImplementation(Object[] args) {
+                return ((String) args[0]).compareTo((String) args[1]);
+            }
+        }, "compare", Object.class, Object.class);
+
+        // java.util isn't open to Simple Mock, real implementation is reached through 'Repo'
+        Comparator<String> reversed = mock.getMocked().reversed();
+        Assert.assertNotNull(reversed);
+        Assert.assertTrue(reversed.compare("a", "b") > 0);
+        Assert.assertArrayEquals(new Object[] { "b", "a" }, mock.getLastRequest("compare", Object.class, Object.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_default_methods_of_jdk_interface_when_unreachable() {
+        Mock<Comparator<String>> mock = (Mock<Comparator<String>>) (Mock<?>) SimpleMock.mockType(Comparator.class,
+                MockOption.CALL_DEFAULT_METHODS);
+
+        // left unstubbed, on every call
+        Assert.assertNull(mock.getMocked().reversed());
+        Assert.assertNull(mock.getMocked().reversed());
+        Assert.assertEquals(2, mock.getAllCapturedRequests("reversed").size());
+    }
+
+    private static interface Repo extends Comparator<String> {
+    }
+
+    private static interface Greeter {
+        String name();
+
+        default String greet() {
+            return greet("Hello");
+        }
+
+        default String greet(String salutation) {
+            return salutation + ", " + name() + "!";
+        }
+
+        default int length(int length) {
+            return length;
+        }
+
+        default void fail() throws IOException {
+            throw new IOException("real failure");
+        }
+    }
+
+    public static class GreeterImpl implements Greeter {
+        @Override
+        public String name() {
+            return "real";
+        }
+    }
+}
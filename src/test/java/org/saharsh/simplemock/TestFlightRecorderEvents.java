@@ -0,0 +1,96 @@
+package org.saharsh.simplemock;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestFlightRecorderEvents {
+
+    private static final String EVENT_NAME = "org.saharsh.simplemock.MockInvocation";
+
+    private Mock<Service> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Service.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @After
+    public void teardown() {
+        SimpleMock.disableFlightRecorderEvents();
+    }
+
+    @Test
+    public void test_enableFlightRecorderEvents_for_emitting_event_per_invocation() throws Exception {
+        mock.setReturnValue("result", "call", String.class);
+        SimpleMock.enableFlightRecorderEvents(1);
+
+        List<RecordedEvent> events = record(10);
+
+        Assert.assertEquals(10, events.size());
+        RecordedEvent event = events.get(0);
+        Assert.assertEquals(Service.class.getName(), event.getClass("mockedType").getName());
+        Assert.assertEquals("call(String)", event.getString("method"));
+        Assert.assertTrue(event.getBoolean("stubbed"));
+        Assert.assertEquals(Thread.currentThread().getName(), event.getThread().getJavaName());
+    }
+
+    @Test
+    public void test_enableFlightRecorderEvents_when_sampling() throws Exception {
+        SimpleMock.enableFlightRecorderEvents(100);
+
+        List<RecordedEvent> events = record(1000);
+
+        Assert.assertTrue(events.size() < 1000);
+        Assert.assertEquals(1000, mock.getCapturedRequestsView("call", String.class).size());
+    }
+
+    @Test
+    public void test_disableFlightRecorderEvents_for_emitting_no_events() throws Exception {
+        SimpleMock.enableFlightRecorderEvents(1);
+        SimpleMock.disableFlightRecorderEvents();
+
+        Assert.assertEquals(0, record(10).size());
+        Assert.assertEquals(10, mock.getCapturedRequestsView("call", String.class).size());
+    }
+
+    private List<RecordedEvent> record(int invocations) throws Exception {
+        File file = File.createTempFile("mock-invocations", ".jfr");
+        file.deleteOnExit();
+        Recording recording = new Recording();
+        try {
+            recording.enable(EVENT_NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            for (int i = 0; i < invocations; i++) {
+                mock.getMocked().call("arg" + i);
+            }
+            recording.stop();
+            recording.dump(file.toPath());
+        } finally {
+            recording.close();
+        }
+
+        List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (EVENT_NAME.equals(event.getEventType().getName())) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static interface Service {
+        String call(String arg);
+    }
+}
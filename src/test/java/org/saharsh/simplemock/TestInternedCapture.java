@@ -0,0 +1,114 @@
+package org.saharsh.simplemock;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestInternedCapture {
+
+    private Mock<Cache> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Cache.class);
+        Assert.assertNotNull(mock);
+        mock.internCapturedRequests("get", String.class, byte[].class);
+    }
+
+    @Test
+    public void test_internCapturedRequests_for_rebuilding_full_history() {
+        String[] keys = { "a", "a", "a", "b", "a", "c", "c", "b" };
+        for (String key : keys) {
+            mock.getMocked().get(key, new byte[] { 1, 2 });
+        }
+
+        List<Object[]> captured = mock.getAllCapturedRequests("get", String.class, byte[].class);
+        Assert.assertEquals(keys.length, captured.size());
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(keys[i], captured.get(i)[0]);
+            Assert.assertArrayEquals(new byte[] { 1, 2 }, (byte[]) captured.get(i)[1]);
+        }
+
+        // repeated invocations share one array, even for array arguments
+        Assert.assertSame(captured.get(0), captured.get(4));
+        Assert.assertSame(captured.get(3), captured.get(7));
+        Assert.assertNotSame(captured.get(0), captured.get(3));
+        Assert.assertEquals("b", mock.getLastRequest("get", String.class, byte[].class)[0]);
+    }
+
+    @Test
+    public void test_internCapturedRequests_for_counting_and_reading_incrementally() {
+        CaptureCursor cursor = mock.newCaptureCursor("get", String.class, byte[].class);
+        for (int i = 0; i < 10000; i++) {
+            mock.getMocked().get(i % 100 < 90 ? "hot" : "cold", null);
+        }
+
+        Assert.assertEquals(9000, mock.countCapturedRequests(new ArgumentMatcher() {
+            @Override
+            public boolean matches(Object[] args) {
+                return "hot".equals(args[0]);
+            }
+        }, "get", String.class, byte[].class));
+
+        int read = 0;
+        while (cursor.hasNext()) {
+            Assert.assertEquals(read % 100 < 90 ? "hot" : "cold", cursor.next()[0]);
+            read++;
+        }
+        Assert.assertEquals(10000, read);
+    }
+
+    @Test
+    public void test_internCapturedRequests_when_cleared_or_reverted() {
+        mock.getMocked().get("a", null);
+        mock.clearCapturedRequests();
+        mock.getMocked().get("b", null);
+        mock.getMocked().get("b", null);
+        Assert.assertEquals(2, mock.getCapturedRequestsView("get", String.class, byte[].class).size());
+        Assert.assertEquals("b", mock.getAllCapturedRequests("get", String.class, byte[].class).get(0)[0]);
+
+        mock.setCaptureProjection(null, "get", String.class, byte[].class);
+        mock.getMocked().get("c", null);
+        mock.getMocked().get("c", null);
+        List<Object[]> captured = mock.getAllCapturedRequests("get", String.class, byte[].class);
+        Assert.assertEquals(2, captured.size());
+        Assert.assertNotSame(captured.get(0), captured.get(1));
+    }
+
+    @Test
+    public void test_internCapturedRequests_when_captured_concurrently() throws Exception {
+        final int threads = 8;
+        final int callsPerThread = 5000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final String key = "key" + (t % 3);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < callsPerThread; i++) {
+                        mock.getMocked().get(key, null);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        List<Object[]> captured = mock.getAllCapturedRequests("get", String.class, byte[].class);
+        Assert.assertEquals(threads * callsPerThread, captured.size());
+        int key0 = 0;
+        for (Object[] args : captured) {
+            if ("key0".equals(args[0])) {
+                key0++;
+            }
+        }
+        Assert.assertEquals(3 * callsPerThread, key0);
+    }
+
+    private static interface Cache {
+        String get(String key, byte[] salt);
+    }
+}
@@ -0,0 +1,269 @@
+package org.saharsh.simplemock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestInvocationTrace {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestInvocationTrace.class);
+
+    @Test
+    public void test_writeTrace_for_round_trip_without_changes() {
+        byte[] before = trace(run(3, MockOption.RECORD_ORDER));
+        byte[] after = trace(run(3, MockOption.RECORD_ORDER));
+
+        TraceDiff diff = TraceDiff.compare(new ByteArrayInputStream(before), new ByteArrayInputStream(after), 2);
+        Assert.assertEquals(Repository.class.getName(), diff.getMockedType());
+        Assert.assertFalse(diff.hasChanges());
+        Assert.assertTrue(diff.getCountChanges().isEmpty());
+        Assert.assertTrue(diff.getNewRepeatedCalls().isEmpty());
+    }
+
+    @Test
+    public void test_compare_for_detecting_count_changes_and_new_repeated_calls() {
+        byte[] before = trace(run(1, MockOption.RECORD_ORDER));
+        byte[] after = trace(run(25, MockOption.RECORD_ORDER));
+
+        TraceDiff diff = TraceDiff.compare(new ByteArrayInputStream(before), new ByteArrayInputStream(after), 10);
+        LOGGER.info("Trace diff: {}", diff);
+        Assert.assertTrue(diff.hasChanges());
+
+        List<CallCountChange> changes = diff.getCountChanges();
+        Assert.assertEquals(1, changes.size());
+        Assert.assertEquals("findById(java.lang.Long)", changes.get(0).getMethod());
+        Assert.assertEquals(1, changes.get(0).getBefore());
+        Assert.assertEquals(25, changes.get(0).getAfter());
+        Assert.assertEquals(25.0, changes.get(0).getRatio(), 0.0);
+
+        List<RepeatedCallPattern> patterns = diff.getNewRepeatedCalls();
+        Assert.assertEquals(1, patterns.size());
+        Assert.assertEquals("findAll()", patterns.get(0).getPreviousMethod());
+        Assert.assertEquals("findById(java.lang.Long)", patterns.get(0).getRepeatedMethod());
+        Assert.assertEquals(1, patterns.get(0).getBefore());
+        Assert.assertEquals(25, patterns.get(0).getAfter());
+
+        // nothing new the other way round
+        diff = TraceDiff.compare(new ByteArrayInputStream(after), new ByteArrayInputStream(before), 10);
+        Assert.assertEquals(1, diff.getCountChanges().size());
+        Assert.assertTrue(diff.getNewRepeatedCalls().isEmpty());
+    }
+
+    @Test
+    public void test_compare_for_methods_only_invoked_in_one_trace() {
+        Mock<Repository> mock = run(2, MockOption.RECORD_ORDER);
+        byte[] before = trace(mock);
+        mock.getMocked().save("new");
+        byte[] after = trace(mock);
+
+        TraceDiff diff = TraceDiff.compare(new ByteArrayInputStream(before), new ByteArrayInputStream(after), 10);
+        Assert.assertEquals(1, diff.getCountChanges().size());
+        Assert.assertEquals("save(java.lang.String)", diff.getCountChanges().get(0).getMethod());
+        Assert.assertEquals(0, diff.getCountChanges().get(0).getBefore());
+        Assert.assertEquals(Double.POSITIVE_INFINITY, diff.getCountChanges().get(0).getRatio(), 0.0);
+    }
+
+    @Test
+    public void test_compare_without_RECORD_ORDER_for_comparing_counts_only() {
+        byte[] before = trace(run(1));
+        byte[] after = trace(run(25));
+
+        TraceDiff diff = TraceDiff.compare(new ByteArrayInputStream(before), new ByteArrayInputStream(after), 10);
+        Assert.assertEquals(1, diff.getCountChanges().size());
+        Assert.assertTrue(diff.getNewRepeatedCalls().isEmpty());
+    }
+
+    @Test
+    public void test_reset_for_clearing_trace() {
+        Mock<Repository> mock = run(5, MockOption.RECORD_ORDER);
+        mock.reset();
+        byte[] empty = trace(SimpleMock.mockType(Repository.class, MockOption.RECORD_ORDER));
+
+        TraceDiff diff = TraceDiff.compare(new ByteArrayInputStream(empty), new ByteArrayInputStream(trace(mock)), 1);
+        Assert.assertFalse(diff.hasChanges());
+    }
+
+    @Test
+    public void test_compare_for_invalid_trace() {
+        byte[] valid = trace(run(1));
+        try {
+            TraceDiff.compare(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 }), new ByteArrayInputStream(valid),
+                    10);
+            Assert.fail("Expected exception was not thrown");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+        try {
+            TraceDiff.compare(new ByteArrayInputStream(valid),
+                    new ByteArrayInputStream(valid, 0, valid.length - 1), 10);
+            Assert.fail("Expected exception was not thrown");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_compare_for_corrupt_counts_and_slots() throws Exception {
+        byte[] valid = trace(run(1));
+
+        // a method count no class could have
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x534D5452);
+        out.writeByte(1);
+        out.writeUTF(Repository.class.getName());
+        out.write(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F });
+        assertInvalid(bytes.toByteArray(), valid, "method count");
+
+        // a run of a method that isn't in the method table
+        bytes = new ByteArrayOutputStream();
+        out = new DataOutputStream(bytes);
+        out.writeInt(0x534D5452);
+        out.writeByte(1);
+        out.writeUTF(Repository.class.getName());
+        out.write(new byte[] { 0, 1, 1, 5, 1 });
+        assertInvalid(bytes.toByteArray(), valid, "method slot");
+    }
+
+    @Test
+    public void test_compare_from_files_for_naming_invalid_file() throws Exception {
+        File before = File.createTempFile("before", ".trace");
+        before.deleteOnExit();
+        File after = File.createTempFile("after", ".trace");
+        after.deleteOnExit();
+        Files.write(before.toPath(), trace(run(1, MockOption.RECORD_ORDER)));
+        Files.write(after.toPath(), new byte[] { 1, 2, 3, 4, 5 });
+
+        try {
+            TraceDiff.compare(before, after, 10);
+            Assert.fail("Expected exception was not thrown");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+            Assert.assertTrue(e.getMessage().contains(after.getPath()));
+        }
+
+        Files.write(after.toPath(), trace(run(2, MockOption.RECORD_ORDER)));
+        Assert.assertEquals(1, TraceDiff.compare(before, after, 10).getCountChanges().size());
+    }
+
+    @Test
+    public void test_writeTrace_for_buffering_writes() {
+        final int[] writes = new int[1];
+        OutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(int b) {
+                writes[0]++;
+                super.write(b);
+            }
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writes[0]++;
+                super.write(b, off, len);
+            }
+        };
+        run(100, MockOption.RECORD_ORDER).writeTrace(out);
+        Assert.assertEquals(1, writes[0]);
+    }
+
+    @Test
+    public void test_compare_for_traces_of_different_types() {
+        byte[] other = trace(SimpleMock.mockType(Runnable.class));
+        try {
+            TraceDiff.compare(new ByteArrayInputStream(trace(run(1))), new ByteArrayInputStream(other), 10);
+            Assert.fail("Expected exception was not thrown");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    private static void assertInvalid(byte[] invalid, byte[] valid, String expected) {
+        try {
+            TraceDiff.compare(new ByteArrayInputStream(invalid), new ByteArrayInputStream(valid), 10);
+            Assert.fail("Expected exception was not thrown");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(expected));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("before trace"));
+        }
+    }
+
+    @Test
+    public void test_writeTrace_for_overloads_taking_types_of_same_simple_name() {
+        byte[] before = trace(lookups(1));
+        byte[] after = trace(lookups(3));
+
+        TraceDiff diff = TraceDiff.compare(new ByteArrayInputStream(before), new ByteArrayInputStream(after), 3);
+        String first = "find(" + First.Id.class.getName() + ")";
+        String second = "find(" + Second.Id.class.getName() + ")";
+
+        List<CallCountChange> changes = diff.getCountChanges();
+        Assert.assertEquals(1, changes.size());
+        Assert.assertEquals(second, changes.get(0).getMethod());
+        Assert.assertEquals(1, changes.get(0).getBefore());
+        Assert.assertEquals(3, changes.get(0).getAfter());
+
+        List<RepeatedCallPattern> patterns = diff.getNewRepeatedCalls();
+        Assert.assertEquals(1, patterns.size());
+        Assert.assertEquals(first, patterns.get(0).getPreviousMethod());
+        Assert.assertEquals(second, patterns.get(0).getRepeatedMethod());
+    }
+
+    private static Mock<Catalog> lookups(int secondIds) {
+        Mock<Catalog> mock = SimpleMock.mockType(Catalog.class, MockOption.RECORD_ORDER);
+        mock.getMocked().find(new First.Id());
+        for (int i = 0; i < secondIds; i++) {
+            mock.getMocked().find(new Second.Id());
+        }
+        return mock;
+    }
+
+    private static Mock<Repository> run(int ids, MockOption... options) {
+        Mock<Repository> mock = SimpleMock.mockType(Repository.class, options);
+        Repository repository = mock.getMocked();
+        repository.findAll();
+        for (long id = 0; id < ids; id++) {
+            repository.findById(id);
+        }
+        return mock;
+    }
+
+    private static byte[] trace(Mock<?> mock) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mock.writeTrace(out);
+        return out.toByteArray();
+    }
+
+    public static interface Catalog {
+        String find(First.Id id);
+
+        String find(Second.Id id);
+    }
+
+    public static class First {
+        public static class Id {
+        }
+    }
+
+    public static class Second {
+        public static class Id {
+        }
+    }
+
+    public static interface Repository {
+        List<String> findAll();
+
+        String findById(Long id);
+
+        void save(String value);
+    }
+}
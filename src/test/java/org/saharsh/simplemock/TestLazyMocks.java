@@ -0,0 +1,95 @@
+package org.saharsh.simplemock;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestLazyMocks {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestLazyMocks.class);
+
+    @Test
+    public void test_mockType_with_LAZY_for_deferring_class_generation() {
+        long generated = SimpleMock.getMockClassStatistics().getGenerated();
+        Mock<NeverMockedBefore> mock = SimpleMock.mockType(NeverMockedBefore.class, MockOption.LAZY);
+
+        // fully usable before the instance exists
+        mock.setReturnValue("stubbed", "name");
+        Assert.assertTrue(mock.getAllCapturedRequests("name").isEmpty());
+        Assert.assertEquals(generated, SimpleMock.getMockClassStatistics().getGenerated());
+
+        NeverMockedBefore mocked = mock.getMocked();
+        Assert.assertEquals(generated + 1, SimpleMock.getMockClassStatistics().getGenerated());
+        Assert.assertSame(mocked, mock.getMocked());
+        Assert.assertEquals("stubbed", mocked.name());
+        Assert.assertEquals(1, mock.getAllCapturedRequests("name").size());
+    }
+
+    @Test
+    public void test_getMocked_with_LAZY_when_called_concurrently() throws Exception {
+        final Mock<NeverMockedBefore> mock = SimpleMock.mockType(NeverMockedBefore.class, MockOption.LAZY);
+        final Set<Object> instances = ConcurrentHashMap.newKeySet();
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        instances.add(mock.getMocked());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        Assert.assertEquals(1, instances.size());
+    }
+
+    @Test
+    public void test_getMocked_with_LAZY_when_instance_cannot_be_created() {
+        Mock<NoDefaultConstructor> mock = SimpleMock.mockType(NoDefaultConstructor.class, MockOption.LAZY);
+        mock.setReturnValue("stubbed", "name");
+        try {
+            mock.getMocked();
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_mockType_without_LAZY_for_failing_straight_away() {
+        try {
+            SimpleMock.mockType(NoDefaultConstructor.class);
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    private static interface NeverMockedBefore {
+        String name();
+    }
+
+    public static class NoDefaultConstructor {
+        public NoDefaultConstructor(String name) {
+        }
+
+        public String name() {
+            return "real";
+        }
+    }
+}
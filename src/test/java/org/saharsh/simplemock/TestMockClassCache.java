@@ -0,0 +1,89 @@
+package org.saharsh.simplemock;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMockClassCache {
+
+    @Test
+    public void test_mockType_for_reusing_mock_classes() {
+        Mock<Service> first = SimpleMock.mockType(Service.class);
+        MockClassStatistics before = SimpleMock.getMockClassStatistics();
+        Mock<Service> second = SimpleMock.mockType(Service.class);
+        MockClassStatistics after = SimpleMock.getMockClassStatistics();
+
+        Assert.assertSame(first.getMocked().getClass(), second.getMocked().getClass());
+        Assert.assertNotSame(first.getMocked(), second.getMocked());
+        Assert.assertEquals(before.getGenerated(), after.getGenerated());
+
+        Mock<ConcreteService> firstClass = SimpleMock.mockType(ConcreteService.class);
+        Mock<ConcreteService> secondClass = SimpleMock.mockType(ConcreteService.class);
+        Assert.assertSame(firstClass.getMocked().getClass(), secondClass.getMocked().getClass());
+    }
+
+    @Test
+    public void test_evictMockClasses_for_generating_again() {
+        Mock<ConcreteService> first = SimpleMock.mockType(ConcreteService.class);
+        MockClassStatistics before = SimpleMock.getMockClassStatistics();
+
+        SimpleMock.evictMockClasses(ConcreteService.class.getClassLoader());
+        MockClassStatistics evicted = SimpleMock.getMockClassStatistics();
+        Assert.assertTrue(evicted.getEvicted() > before.getEvicted());
+        Assert.assertTrue(evicted.getLive() < before.getLive());
+
+        Mock<ConcreteService> second = SimpleMock.mockType(ConcreteService.class);
+        Assert.assertNotSame(first.getMocked().getClass(), second.getMocked().getClass());
+        Assert.assertEquals(evicted.getGenerated() + 1, SimpleMock.getMockClassStatistics().getGenerated());
+
+        // the evicted class keeps working for existing mocks
+        first.setReturnValue("first", "getName");
+        Assert.assertEquals("first", first.getMocked().getName());
+    }
+
+    @Test
+    public void test_mockType_when_class_loader_collected() throws Exception {
+        long evictedBefore = SimpleMock.getMockClassStatistics().getEvicted();
+        WeakReference<ClassLoader> loader = mockInDiscardedLoader();
+
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull("class loader of mocked type wasn't collected", loader.get());
+
+        long evicted = evictedBefore;
+        for (int i = 0; i < 100 && evicted == evictedBefore; i++) {
+            System.gc();
+            Thread.sleep(10);
+            evicted = SimpleMock.getMockClassStatistics().getEvicted();
+        }
+        Assert.assertTrue(evicted > evictedBefore);
+    }
+
+    private static WeakReference<ClassLoader> mockInDiscardedLoader() throws Exception {
+        URL testClasses = Service.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[] { testClasses }, null);
+        Class<?> serviceType = loader.loadClass(Service.class.getName());
+        Assert.assertNotSame(Service.class, serviceType);
+
+        Mock<?> mock = SimpleMock.mockType(serviceType);
+        Assert.assertNotNull(mock.getMocked());
+        loader.close();
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    public static interface Service {
+        String getName();
+    }
+
+    public static class ConcreteService implements Service {
+        @Override
+        public String getName() {
+            return "real";
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.saharsh.simplemock;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestMockDiagnostics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestMockDiagnostics.class);
+
+    private Mock<Store> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Store.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @After
+    public void teardown() {
+        SimpleMock.disableAllocationTracking();
+    }
+
+    @Test
+    public void test_getDiagnostics_for_reporting_per_method_counts_and_bytes() {
+        for (int i = 0; i < 100; i++) {
+            mock.getMocked().put("key" + i, new byte[1000]);
+        }
+        mock.getMocked().size();
+
+        MethodDiagnostics put = find(mock.getDiagnostics(), "put");
+        Assert.assertEquals(100, put.getInvocations());
+        Assert.assertEquals(100, put.getCapturedRequests());
+        Assert.assertEquals(100, put.getCapturedArrays());
+        Assert.assertTrue(put.getEstimatedBytes() >= 100 * 1000);
+        Assert.assertTrue(Double.isNaN(put.getAllocatedBytesPerInvocation()));
+        Assert.assertEquals(1, find(mock.getDiagnostics(), "size").getInvocations());
+
+        // invocations are still counted once cleared
+        mock.clearCapturedRequests();
+        put = find(mock.getDiagnostics(), "put");
+        Assert.assertEquals(100, put.getInvocations());
+        Assert.assertEquals(0, put.getCapturedRequests());
+        Assert.assertTrue(put.getEstimatedBytes() < 1000);
+
+        mock.reset();
+        Assert.assertTrue(mock.getDiagnostics().getMethods().isEmpty());
+    }
+
+    @Test
+    public void test_getDiagnostics_for_reflecting_capture_policies() {
+        mock.internCapturedRequests("put", String.class, byte[].class);
+        byte[] value = new byte[1000];
+        for (int i = 0; i < 100; i++) {
+            mock.getMocked().put("same", value);
+        }
+
+        MethodDiagnostics put = find(mock.getDiagnostics(), "put");
+        Assert.assertEquals(100, put.getCapturedRequests());
+        Assert.assertEquals(1, put.getCapturedArrays());
+        Assert.assertTrue(put.getEstimatedBytes() < 2 * 1000);
+    }
+
+    @Test
+    public void test_enableAllocationTracking_for_measuring_allocation_per_invocation() {
+        mock.setMockImplmentation(new MethodMock() {
+            @Override
+            public Object runMockImplementation(Object[] args) {
+                return new byte[10000].length;
+            }
+        }, "size");
+
+        SimpleMock.enableAllocationTracking(1);
+        for (int i = 0; i < 10; i++) {
+            mock.getMocked().size();
+        }
+        SimpleMock.disableAllocationTracking();
+        mock.getMocked().size();
+
+        MethodDiagnostics size = find(mock.getDiagnostics(), "size");
+        Assert.assertEquals(11, size.getInvocations());
+        Assert.assertTrue(size.getAllocatedBytesPerInvocation() >= 10000);
+    }
+
+    @Test
+    public void test_enableAllocationTracking_with_flight_recorder_events() {
+        Assert.assertNull(InvocationHooks.active);
+        SimpleMock.enableAllocationTracking(1);
+        SimpleMock.enableFlightRecorderEvents(1);
+        try {
+            for (int i = 0; i < 10; i++) {
+                mock.getMocked().size();
+            }
+        } finally {
+            SimpleMock.disableFlightRecorderEvents();
+        }
+        Assert.assertNotNull(InvocationHooks.active);
+        SimpleMock.disableAllocationTracking();
+        Assert.assertNull(InvocationHooks.active);
+
+        MethodDiagnostics size = find(mock.getDiagnostics(), "size");
+        Assert.assertEquals(10, size.getInvocations());
+        Assert.assertFalse(Double.isNaN(size.getAllocatedBytesPerInvocation()));
+    }
+
+    @Test
+    public void test_dumpMockDiagnostics_for_listing_largest_first() {
+        Mock<Store> small = SimpleMock.mockType(Store.class);
+        small.getMocked().put("small", new byte[1]);
+        for (int i = 0; i < 10; i++) {
+            mock.getMocked().put("large", new byte[1000000]);
+        }
+
+        // both mocks are registered, whoever else is alive
+        int stores = 0;
+        for (MockDiagnostics diagnostics : SimpleMock.getMockDiagnostics()) {
+            if (diagnostics.getMockedType() == Store.class) {
+                stores++;
+            }
+        }
+        Assert.assertTrue(stores >= 2);
+
+        String dump = SimpleMock.dumpMockDiagnostics(1);
+        LOGGER.info("Top offender: {}", dump);
+        Assert.assertEquals(1, dump.trim().split(System.lineSeparator()).length);
+        Assert.assertTrue(dump.contains("put(String, byte[])"));
+        Assert.assertTrue(dump.contains("captured=10,"));
+    }
+
+    private static MethodDiagnostics find(MockDiagnostics diagnostics, String methodName) {
+        List<MethodDiagnostics> methods = diagnostics.getMethods();
+        for (MethodDiagnostics method : methods) {
+            if (method.getMethod().getName().equals(methodName)) {
+                return method;
+            }
+        }
+        throw new AssertionError("No diagnostics for " + methodName);
+    }
+
+    private static interface Store {
+        void put(String key, byte[] value);
+
+        Integer size();
+    }
+}
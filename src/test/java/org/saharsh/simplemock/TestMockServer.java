@@ -0,0 +1,212 @@
+package org.saharsh.simplemock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestMockServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestMockServer.class);
+
+    private Mock<Downstream> mock;
+    private MockServer server;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Downstream.class);
+        server = MockServer.start(mock);
+        Assert.assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+    }
+
+    @After
+    public void teardown() {
+        server.close();
+    }
+
+    @Test
+    public void test_request_for_dispatching_to_stub_and_capturing() throws Exception {
+        mock.setReturnValue("entity-42", "findById", long.class);
+        Client client = new Client();
+        try {
+            client.send("findById", 42L);
+            Assert.assertEquals("entity-42", client.receive());
+
+            client.send("ping");
+            Assert.assertNull(client.receive());
+        } finally {
+            client.close();
+        }
+
+        Assert.assertArrayEquals(new Object[] { 42L }, mock.getLastRequest("findById", long.class));
+        Assert.assertEquals(1, mock.getAllCapturedRequests("ping").size());
+    }
+
+    @Test
+    public void test_request_for_resolving_overloads_by_argument_types() throws Exception {
+        mock.setReturnValue(1, "add", int.class, int.class);
+        mock.setReturnValue(2L, "add", long.class, long.class);
+        Client client = new Client();
+        try {
+            client.send("add", 1, 2);
+            Assert.assertEquals(1, client.receive());
+            client.send("add", 1L, 2L);
+            Assert.assertEquals(2L, client.receive());
+            client.send("upload", "name", new byte[] { 1, 2, 3 });
+            Assert.assertNull(client.receive());
+        } finally {
+            client.close();
+        }
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 },
+                (byte[]) mock.getLastRequest("upload", String.class, byte[].class)[1]);
+    }
+
+    @Test
+    public void test_request_when_method_not_found_or_stub_throws() throws Exception {
+        mock.setMockImplmentation(new MethodMock() {
+            @Override
+            public Object runMockImplementation(Object[] args) {
+                throw new IllegalStateException("downstream unavailable");
+            }
+        }, "ping");
+        Client client = new Client();
+        try {
+            client.send("doesNotExist");
+            String error = client.receiveError();
+            LOGGER.info("Received expected error: {}", error);
+            Assert.assertTrue(error.contains("doesNotExist"));
+
+            client.send("ping");
+            Assert.assertTrue(client.receiveError().contains("downstream unavailable"));
+
+            // connection stays usable
+            client.send("findById", 1L);
+            Assert.assertNull(client.receive());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void test_request_when_pipelined_from_concurrent_clients() throws Exception {
+        mock.setReturnValue("ok", "findById", long.class);
+        final int clients = 8;
+        final int requestsPerClient = 2000;
+        final AtomicInteger responses = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Client client = new Client();
+                        try {
+                            // write everything before reading anything back
+                            for (long i = 0; i < requestsPerClient; i++) {
+                                client.send("findById", i);
+                            }
+                            for (int i = 0; i < requestsPerClient; i++) {
+                                if ("ok".equals(client.receive())) {
+                                    responses.incrementAndGet();
+                                }
+                            }
+                        } finally {
+                            client.close();
+                        }
+                    } catch (IOException e) {
+                        LOGGER.error("Client failed", e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+
+        Assert.assertEquals(clients * requestsPerClient, responses.get());
+        Assert.assertEquals(clients * requestsPerClient, mock.getCapturedRequestsView("findById", long.class).size());
+    }
+
+    @Test
+    public void test_request_with_large_argument() throws Exception {
+        Client client = new Client();
+        try {
+            client.send("upload", "large", new byte[1024 * 1024]);
+            Assert.assertNull(client.receive());
+        } finally {
+            client.close();
+        }
+        Assert.assertEquals(1024 * 1024,
+                ((byte[]) mock.getLastRequest("upload", String.class, byte[].class)[1]).length);
+    }
+
+    private final class Client {
+
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        Client() throws IOException {
+            socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        void send(String method, Object... args) throws IOException {
+            ByteBuffer payload = FrameCodec.writeString(ByteBuffer.allocate(64), method);
+            payload = FrameCodec.ensure(payload, 1).put((byte) args.length);
+            for (Object arg : args) {
+                payload = FrameCodec.write(payload, arg);
+            }
+            out.writeInt(payload.position());
+            out.write(payload.array(), 0, payload.position());
+            out.flush();
+        }
+
+        Object receive() throws IOException {
+            ByteBuffer payload = readFrame();
+            Assert.assertEquals(MockServer.OK, payload.get());
+            return FrameCodec.read(payload);
+        }
+
+        String receiveError() throws IOException {
+            ByteBuffer payload = readFrame();
+            Assert.assertEquals(MockServer.ERROR, payload.get());
+            return FrameCodec.readString(payload);
+        }
+
+        private ByteBuffer readFrame() throws IOException {
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return ByteBuffer.wrap(payload);
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static interface Downstream {
+        String findById(long id);
+
+        void ping();
+
+        int add(int a, int b);
+
+        long add(long a, long b);
+
+        void upload(String name, byte[] content);
+    }
+}
@@ -0,0 +1,99 @@
+package org.saharsh.simplemock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestObjectMethods {
+
+    @Test
+    public void test_interface_mock_for_identity_semantics() {
+        Mock<InterfaceToMock> mock = SimpleMock.mockType(InterfaceToMock.class);
+        Mock<InterfaceToMock> other = SimpleMock.mockType(InterfaceToMock.class);
+        InterfaceToMock mocked = mock.getMocked();
+
+        Assert.assertEquals(System.identityHashCode(mocked), mocked.hashCode());
+        Assert.assertTrue(mocked.equals(mocked));
+        Assert.assertFalse(mocked.equals(other.getMocked()));
+        Assert.assertTrue(mocked.toString().contains(InterfaceToMock.class.getName()));
+    }
+
+    @Test
+    public void test_class_mock_for_identity_semantics() {
+        Mock<ClassToMock> mock = SimpleMock.mockType(ClassToMock.class);
+        ClassToMock mocked = mock.getMocked();
+
+        // ClassToMock overrides all three, mock still falls back to identity
+        Assert.assertEquals(System.identityHashCode(mocked), mocked.hashCode());
+        Assert.assertTrue(mocked.equals(mocked));
+        Assert.assertFalse(mocked.equals(new ClassToMock()));
+        Assert.assertTrue(mocked.toString().contains(ClassToMock.class.getName()));
+    }
+
+    @Test
+    public void test_mocks_as_hash_keys_for_not_being_captured() {
+        Mock<InterfaceToMock> mock = SimpleMock.mockType(InterfaceToMock.class);
+        Map<InterfaceToMock, String> map = new HashMap<InterfaceToMock, String>();
+        Map<InterfaceToMock, String> concurrentMap = new ConcurrentHashMap<InterfaceToMock, String>();
+
+        map.put(mock.getMocked(), "value");
+        concurrentMap.put(mock.getMocked(), "value");
+
+        Assert.assertEquals("value", map.get(mock.getMocked()));
+        Assert.assertEquals("value", concurrentMap.get(mock.getMocked()));
+        Assert.assertNull(mock.getLastRequest("hashCode"));
+        Assert.assertNull(mock.getLastRequest("equals", Object.class));
+    }
+
+    @Test
+    public void test_explicitly_stubbed_object_methods() {
+        Mock<InterfaceToMock> mock = SimpleMock.mockType(InterfaceToMock.class);
+        mock.setReturnValue(42, "hashCode");
+        mock.setReturnValue("stubbed", "toString");
+
+        Assert.assertEquals(42, mock.getMocked().hashCode());
+        Assert.assertEquals("stubbed", mock.getMocked().toString());
+        Assert.assertEquals(1, mock.getAllCapturedRequests("hashCode").size());
+
+        Mock<ClassToMock> classMock = SimpleMock.mockType(ClassToMock.class);
+        classMock.setReturnValue(true, "equals", Object.class);
+        Assert.assertTrue(classMock.getMocked().equals(new Object()));
+        Assert.assertNotNull(classMock.getLastRequest("equals", Object.class));
+    }
+
+    @Test
+    public void test_regular_methods_when_named_like_object_methods() {
+        Mock<InterfaceToMock> mock = SimpleMock.mockType(InterfaceToMock.class);
+        mock.setReturnValue("formatted", "toString", int.class);
+
+        Assert.assertEquals("formatted", mock.getMocked().toString(5));
+        Assert.assertNotNull(mock.getLastRequest("toString", int.class));
+    }
+
+    private static interface InterfaceToMock {
+        String doSomething();
+
+        String toString(int indent);
+    }
+
+    public static class ClassToMock {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ClassToMock;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return "ClassToMock";
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.saharsh.simplemock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestPregeneratedMocks {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestPregeneratedMocks.class);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File outputDirectory;
+
+    @Before
+    public void setup() throws Exception {
+        outputDirectory = temporaryFolder.newFolder("pregenerated");
+    }
+
+    @Test
+    public void test_generate_for_writing_class_and_index() throws Exception {
+        MockClassGenerator generator = new MockClassGenerator(outputDirectory);
+        String className = generator.generate(Service.class);
+        generator.writeIndex();
+
+        Assert.assertEquals(Service.class.getName() + "$$SimpleMock", className);
+        Assert.assertTrue(new File(outputDirectory, className.replace('.', '/') + ".class").isFile());
+        Properties index = new Properties();
+        InputStream in = new FileInputStream(new File(outputDirectory, MockClassGenerator.INDEX_RESOURCE));
+        try {
+            index.load(in);
+        } finally {
+            in.close();
+        }
+        Assert.assertEquals(className + ';' + MockClassGenerator.fingerprint(Service.class),
+                index.getProperty(Service.class.getName()));
+
+        // existing entries are kept
+        new MockClassGenerator(outputDirectory).writeIndex();
+        in = new FileInputStream(new File(outputDirectory, MockClassGenerator.INDEX_RESOURCE));
+        try {
+            index.clear();
+            index.load(in);
+        } finally {
+            in.close();
+        }
+        Assert.assertTrue(index.getProperty(Service.class.getName()).startsWith(className + ';'));
+    }
+
+    @Test
+    public void test_fingerprint_for_changing_with_methods() {
+        Assert.assertEquals(MockClassGenerator.fingerprint(Service.class),
+                MockClassGenerator.fingerprint(Service.class));
+        Assert.assertNotEquals(MockClassGenerator.fingerprint(Service.class),
+                MockClassGenerator.fingerprint(ExtendedService.class));
+        Assert.assertNotEquals(MockClassGenerator.fingerprint(Service.class),
+                MockClassGenerator.fingerprint(OtherService.class));
+    }
+
+    @Test
+    public void test_generate_when_interface() {
+        Assert.assertFalse(MockClassGenerator.canGenerate(Runnable.class));
+        try {
+            new MockClassGenerator(outputDirectory).generate(Runnable.class);
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_mockType_for_loading_pregenerated_class() throws Exception {
+        MockClassGenerator generator = new MockClassGenerator(outputDirectory);
+        String className = generator.generate(Service.class);
+        generator.writeIndex();
+
+        // load the mocked type and the pregenerated class the way a test class
+        // path containing both would
+        URL testClasses = Service.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new ChildFirstClassLoader(new URL[] { outputDirectory.toURI().toURL(), testClasses },
+                Service.class.getName());
+        Class<?> serviceType = loader.loadClass(Service.class.getName());
+        Assert.assertNotSame(Service.class, serviceType);
+
+        Mock<?> mock = SimpleMock.mockType(serviceType);
+        mock.setReturnValue("pregenerated", "lookup", String.class);
+        Object mocked = mock.getMocked();
+
+        Assert.assertEquals(className, mocked.getClass().getName());
+        Assert.assertSame(loader, mocked.getClass().getClassLoader());
+        Assert.assertEquals("pregenerated", serviceType.getMethod("lookup", String.class).invoke(mocked, "key"));
+        Assert.assertEquals("key", mock.getLastRequest("lookup", String.class)[0]);
+    }
+
+    @Test
+    public void test_mockType_when_pregenerated_class_is_stale() throws Exception {
+        MockClassGenerator generator = new MockClassGenerator(outputDirectory);
+        String className = generator.generate(Service.class);
+        generator.writeIndex();
+
+        // as if the mocked type gained a method after its mock class was generated
+        File indexFile = new File(outputDirectory, MockClassGenerator.INDEX_RESOURCE);
+        Properties index = new Properties();
+        InputStream in = new FileInputStream(indexFile);
+        try {
+            index.load(in);
+        } finally {
+            in.close();
+        }
+        index.setProperty(Service.class.getName(),
+                className + ';' + MockClassGenerator.fingerprint(OtherService.class));
+        OutputStream out = new FileOutputStream(indexFile);
+        try {
+            index.store(out, null);
+        } finally {
+            out.close();
+        }
+
+        URL testClasses = Service.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new ChildFirstClassLoader(new URL[] { outputDirectory.toURI().toURL(), testClasses },
+                Service.class.getName());
+        Mock<?> mock = SimpleMock.mockType(loader.loadClass(Service.class.getName()));
+        Assert.assertNotEquals(className, mock.getMocked().getClass().getName());
+    }
+
+    @Test
+    public void test_mockType_when_not_pregenerated() {
+        Mock<Service> mock = SimpleMock.mockType(Service.class);
+        Assert.assertNotEquals(Service.class.getName() + "$$SimpleMock", mock.getMocked().getClass().getName());
+    }
+
+    public static class Service {
+        public String lookup(String key) {
+            return key;
+        }
+    }
+
+    public static class ExtendedService extends Service {
+        public String lookupAll(String prefix) {
+            return prefix;
+        }
+    }
+
+    public static class OtherService {
+        public String lookup(String key) {
+            return key;
+        }
+
+        public void invalidate(String key) {
+        }
+    }
+
+    // loads the mocked type and its mock class itself, everything else from the parent
+    private static class ChildFirstClassLoader extends URLClassLoader {
+
+        private final String prefix;
+
+        ChildFirstClassLoader(URL[] urls, String prefix) {
+            super(urls, ChildFirstClassLoader.class.getClassLoader());
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(prefix)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                return loaded != null ? loaded : findClass(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.saharsh.simplemock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestScriptedAnswers {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestScriptedAnswers.class);
+
+    private Mock<PagedService> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(PagedService.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @Test
+    public void test_setReturnValues_for_returning_values_in_order_then_repeating_last() {
+        mock.setReturnValues(Arrays.asList("page1", "page2", "end"), "nextPage");
+
+        Assert.assertEquals("page1", mock.getMocked().nextPage());
+        Assert.assertEquals("page2", mock.getMocked().nextPage());
+        Assert.assertEquals("end", mock.getMocked().nextPage());
+        Assert.assertEquals("end", mock.getMocked().nextPage());
+    }
+
+    @Test
+    public void test_setCyclicReturnValues_for_wrapping_around() {
+        mock.setCyclicReturnValues(Arrays.asList("a", "b"), "nextPage");
+
+        Assert.assertEquals("a", mock.getMocked().nextPage());
+        Assert.assertEquals("b", mock.getMocked().nextPage());
+        Assert.assertEquals("a", mock.getMocked().nextPage());
+        Assert.assertEquals("b", mock.getMocked().nextPage());
+    }
+
+    @Test
+    public void test_setReturnValues_from_iterator_for_pulling_lazily() {
+        final AtomicInteger pulled = new AtomicInteger();
+        Iterator<String> values = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < 1000000;
+            }
+
+            @Override
+            public String next() {
+                return "row" + pulled.incrementAndGet();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        mock.setReturnValues(values, "nextPage");
+
+        Assert.assertEquals(0, pulled.get());
+        Assert.assertEquals("row1", mock.getMocked().nextPage());
+        Assert.assertEquals("row2", mock.getMocked().nextPage());
+        Assert.assertEquals(2, pulled.get());
+    }
+
+    @Test
+    public void test_setReturnValues_from_file() throws Exception {
+        File file = writeValues("row1", "row2", "row3");
+
+        mock.setReturnValues(SimpleMock.readValues(file), "nextPage");
+
+        Assert.assertEquals("row1", mock.getMocked().nextPage());
+        Assert.assertEquals("row2", mock.getMocked().nextPage());
+        Assert.assertEquals("row3", mock.getMocked().nextPage());
+        Assert.assertEquals("row3", mock.getMocked().nextPage());
+    }
+
+    @Test
+    public void test_readValues_for_closing_before_last_value() throws Exception {
+        File file = writeValues("row1", "row2", "row3");
+
+        ValueReader values = SimpleMock.readValues(file);
+        try {
+            Assert.assertTrue(values.hasNext());
+            Assert.assertEquals("row1", values.next());
+        } finally {
+            values.close();
+        }
+        Assert.assertFalse(values.hasNext());
+        values.close();
+    }
+
+    @Test
+    public void test_setReturnValues_when_called_concurrently() throws Exception {
+        final int threads = 8;
+        final int callsPerThread = 1000;
+        Integer[] values = new Integer[threads * callsPerThread];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        mock.setReturnValues(Arrays.asList(values), "nextNumber");
+
+        final Queue<Integer> seen = new ConcurrentLinkedQueue<Integer>();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < callsPerThread; i++) {
+                        seen.add(mock.getMocked().nextNumber());
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        // every scripted value handed out exactly once
+        Assert.assertEquals(values.length, seen.size());
+        Assert.assertEquals(values.length, new HashSet<Integer>(seen).size());
+    }
+
+    @Test
+    public void test_setReturnValues_with_no_values() {
+        try {
+            mock.setReturnValues(Collections.emptyList(), "nextPage");
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    private static File writeValues(String... values) throws Exception {
+        File file = File.createTempFile("scripted", ".ser");
+        file.deleteOnExit();
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+        try {
+            for (String value : values) {
+                out.writeObject(value);
+                out.reset();
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static interface PagedService {
+        String nextPage();
+
+        Integer nextNumber();
+    }
+}
@@ -0,0 +1,201 @@
+package org.saharsh.simplemock;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestSimpleMockRule {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestSimpleMockRule.class);
+
+    @Rule
+    public final SimpleMockRule mocks = new SimpleMockRule();
+
+    @Mocked
+    private Mock<Repository> repository;
+
+    @Mocked
+    private Clock clock;
+
+    @Mocked(options = MockOption.SKIP_CONSTRUCTOR)
+    private Mock<Auditor> auditor;
+
+    @InjectMocks
+    private Service service;
+
+    @Before
+    public void setup() {
+        // rule has already run by the time '@Before' methods do
+        Assert.assertNotNull(repository);
+        Assert.assertNotNull(service);
+    }
+
+    @Test
+    public void test_rule_for_injecting_mocks_into_fields_and_target() {
+        Assert.assertNotNull(clock);
+        Assert.assertSame(repository.getMocked(), service.repository);
+        Assert.assertSame(clock, service.clock);
+        Assert.assertSame(auditor.getMocked(), service.auditor);
+
+        repository.setReturnValue("entity", "find", long.class);
+        Assert.assertEquals("entity", service.lookup(1L));
+        Assert.assertArrayEquals(new Object[] { 1L }, repository.getLastRequest("find", long.class));
+        Assert.assertNotNull(auditor.getLastRequest("record", String.class));
+    }
+
+    @Test
+    public void test_rule_for_starting_each_test_with_clean_mocks() {
+        // the other test stubs and invokes the same mock types
+        Assert.assertNull(repository.getLastRequest("find", long.class));
+        Assert.assertNull(service.lookup(1L));
+    }
+
+    @Test
+    public void test_inject_for_reusing_reset_mocks() {
+        InjectionPlan plan = InjectionPlan.of(Fixture.class);
+        Assert.assertSame(plan, InjectionPlan.of(Fixture.class));
+
+        Fixture first = new Fixture();
+        Mock<?>[] handedOut = plan.inject(first);
+        first.repository.setReturnValue("stubbed", "find", long.class);
+        first.repository.getMocked().find(1L);
+        plan.release(handedOut);
+
+        Fixture second = new Fixture();
+        plan.inject(second);
+        Assert.assertSame(first.repository, second.repository);
+        Assert.assertNull(second.repository.getLastRequest("find", long.class));
+        Assert.assertNull(second.repository.getMocked().find(1L));
+
+        // target created anew, through its 'no-arg' constructor
+        Assert.assertNotSame(first.target, second.target);
+        Assert.assertSame(second.repository.getMocked(), second.target.repository);
+    }
+
+    @Test
+    public void test_inject_for_not_reusing_mocks_with_changed_capture() {
+        InjectionPlan plan = InjectionPlan.of(Fixture.class);
+        Fixture first = new Fixture();
+        Mock<?>[] handedOut = plan.inject(first);
+        first.repository.internCapturedRequests("find", long.class);
+        plan.release(handedOut);
+
+        Fixture second = new Fixture();
+        plan.inject(second);
+        Assert.assertNotSame(first.repository, second.repository);
+    }
+
+    @Test
+    public void test_rule_for_not_leaking_capture_settings_into_later_tests() {
+        Result result = JUnitCore.runClasses(CaptureSettingTests.class);
+        Assert.assertEquals(2, result.getRunCount());
+        Assert.assertTrue(String.valueOf(result.getFailures()), result.wasSuccessful());
+    }
+
+    @Test
+    public void test_inject_when_mocked_type_not_declared() {
+        try {
+            InjectionPlan.of(RawFixture.class);
+            Assert.fail("Expected exception");
+        } catch (MockException e) {
+            LOGGER.info("Caught expected exception: {}", e.getMessage());
+        }
+    }
+
+    private static interface Repository {
+        String find(long id);
+    }
+
+    private static interface Clock {
+        long now();
+    }
+
+    public static class Auditor {
+        public Auditor(String name) {
+        }
+
+        public void record(String event) {
+        }
+    }
+
+    private static class Service {
+
+        private final Repository repository;
+        private final Auditor auditor;
+        private Clock clock;
+
+        @SuppressWarnings("unused")
+        Service(Repository repository) {
+            this(repository, null);
+        }
+
+        Service(Repository repository, Auditor auditor) {
+            this.repository = repository;
+            this.auditor = auditor;
+        }
+
+        String lookup(long id) {
+            auditor.record("lookup");
+            return repository.find(id);
+        }
+    }
+
+    private static class Target {
+        private Repository repository;
+    }
+
+    private static class Fixture {
+        @Mocked
+        private Mock<Repository> repository;
+
+        @InjectMocks
+        private Target target;
+    }
+
+    /** Run by a test above, in name order, so the second test gets the mock after the first */
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class CaptureSettingTests {
+
+        @Rule
+        public final SimpleMockRule mocks = new SimpleMockRule();
+
+        @Mocked
+        private Mock<Repository> repository;
+
+        @Test
+        public void test_1_projecting_and_interning() {
+            repository.setCaptureProjection(new CaptureProjection() {
+                @Override
+                public Object[] project(Object[] args) {
+                    return new Object[0];
+                }
+            }, "find", long.class);
+            repository.internCapturedRequests("find", long.class);
+        }
+
+        @Test
+        public void test_2_capturing_by_default() {
+            repository.getMocked().find(1L);
+            repository.getMocked().find(1L);
+            Assert.assertTrue(repository.capturesByDefault());
+            List<Object[]> requests = repository.getAllCapturedRequests("find", long.class);
+            Assert.assertArrayEquals(new Object[] { 1L }, requests.get(0));
+            Assert.assertNotSame(requests.get(0), requests.get(1));
+        }
+    }
+
+    private static class RawFixture {
+        @SuppressWarnings("rawtypes")
+        @Mocked
+        private Mock repository;
+    }
+}
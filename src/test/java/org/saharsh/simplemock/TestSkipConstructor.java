@@ -0,0 +1,89 @@
+package org.saharsh.simplemock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSkipConstructor {
+
+    @Before
+    public void setup() {
+        ExpensiveService.CONSTRUCTED.set(0);
+    }
+
+    @Test
+    public void test_class_mock_when_option_not_set() {
+        SimpleMock.mockType(ExpensiveService.class);
+        Assert.assertEquals(1, ExpensiveService.CONSTRUCTED.get());
+    }
+
+    @Test
+    public void test_class_mock_for_not_running_constructor() {
+        Mock<ExpensiveService> mock = SimpleMock.mockType(ExpensiveService.class, MockOption.SKIP_CONSTRUCTOR);
+        mock.setReturnValue("mocked", "lookup", String.class);
+
+        Assert.assertEquals(0, ExpensiveService.CONSTRUCTED.get());
+        Assert.assertEquals("mocked", mock.getMocked().lookup("key"));
+        Assert.assertEquals("key", mock.getLastRequest("lookup", String.class)[0]);
+    }
+
+    @Test
+    public void test_class_mock_when_no_no_arg_constructor() {
+        Mock<NoDefaultConstructor> mock = SimpleMock.mockType(NoDefaultConstructor.class,
+                MockOption.SKIP_CONSTRUCTOR);
+        mock.setReturnValue(7, "value");
+
+        Assert.assertEquals(7, mock.getMocked().value());
+        Assert.assertNull(mock.getMocked().name);
+    }
+
+    @Test
+    public void test_class_mock_for_separate_instances() {
+        Mock<ExpensiveService> first = SimpleMock.mockType(ExpensiveService.class, MockOption.SKIP_CONSTRUCTOR);
+        Mock<ExpensiveService> second = SimpleMock.mockType(ExpensiveService.class, MockOption.SKIP_CONSTRUCTOR);
+        first.setReturnValue("first", "lookup", String.class);
+
+        Assert.assertSame(first.getMocked().getClass(), second.getMocked().getClass());
+        Assert.assertEquals("first", first.getMocked().lookup("key"));
+        Assert.assertNull(second.getMocked().lookup("key"));
+    }
+
+    @Test
+    public void test_deep_stubs_for_class_without_no_arg_constructor() {
+        Mock<Factory> mock = SimpleMock.mockType(Factory.class, MockOption.DEEP_STUBS,
+                MockOption.SKIP_CONSTRUCTOR);
+        Assert.assertNotNull(mock.getMocked().create());
+    }
+
+    public static class ExpensiveService {
+
+        static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+        public ExpensiveService() {
+            CONSTRUCTED.incrementAndGet();
+        }
+
+        public String lookup(String key) {
+            return key;
+        }
+    }
+
+    public static class NoDefaultConstructor {
+
+        final String name;
+
+        public NoDefaultConstructor(String name) {
+            this.name = name;
+        }
+
+        public int value() {
+            return name.length();
+        }
+    }
+
+    public static interface Factory {
+        NoDefaultConstructor create();
+    }
+}
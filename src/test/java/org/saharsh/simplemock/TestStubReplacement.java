@@ -0,0 +1,81 @@
+package org.saharsh.simplemock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStubReplacement {
+
+    private Mock<Service> mock;
+
+    @Before
+    public void setup() {
+        mock = SimpleMock.mockType(Service.class);
+        Assert.assertNotNull(mock);
+    }
+
+    @After
+    public void teardown() {
+        // readers below capture millions of calls, don't leave them to the mock registry
+        mock.reset();
+    }
+
+    @Test
+    public void test_setMockImplmentation_with_null_for_removing_response() {
+        mock.setReturnValue(5, "version");
+        mock.setReturnValue("stubbed", "toString");
+        Assert.assertEquals(Integer.valueOf(5), mock.getMocked().version());
+        Assert.assertEquals("stubbed", mock.getMocked().toString());
+
+        mock.setMockImplmentation(null, "version");
+        mock.setMockImplmentation(null, "toString");
+        Assert.assertNull(mock.getMocked().version());
+
+        // back to the identity based default, instead of a 'null' response
+        Assert.assertNotNull(mock.getMocked().toString());
+        Assert.assertNotEquals("stubbed", mock.getMocked().toString());
+    }
+
+    @Test
+    public void test_setReturnValue_when_invoked_concurrently() throws Exception {
+        final int readers = 4;
+        final int versions = 20000;
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final CountDownLatch done = new CountDownLatch(readers);
+        mock.setReturnValue(0, "version");
+        for (int r = 0; r < readers; r++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int lastSeen = 0;
+                        while (lastSeen < versions) {
+                            Integer version = mock.getMocked().version();
+                            if (version == null || version < lastSeen) {
+                                failure.compareAndSet(null, "Went from version " + lastSeen + " to " + version);
+                                return;
+                            }
+                            lastSeen = version;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        for (int version = 1; version <= versions; version++) {
+            mock.setReturnValue(version, "version");
+        }
+        done.await();
+
+        Assert.assertNull(failure.get());
+    }
+
+    private static interface Service {
+        Integer version();
+    }
+}